@@ -0,0 +1,142 @@
+// k6 를 설치할 수 없는 환경에서 chat-ocr.js 와 같은 부하를 node(20+) 만으로 건다.
+// 시나리오와 임계값은 chat-ocr.js 와 같다. (ramping-vus, 실패율 2% / 채팅 응답 대기 p95 3초 / OCR p95 10초, 30초 뒤부터 판정)
+// 임계값을 넘으면 중단하고 그때의 VU 수를 출력한다.
+//
+//   TOKEN=<access token> IMAGE=./wod.jpg node loadtest/chat-ocr-node.mjs
+//
+// 옵션 (환경 변수)
+//   BASE_URL           : 서버 주소 (기본 http://localhost:8080)
+//   CHAT_VUS / OCR_VUS : 각 시나리오의 최대 동시 사용자 (기본 400 / 100)
+//   RAMP_S             : 최대까지 올리는 시간(초) (기본 300) -> 이후 60초 유지
+//   IMAGE              : 없으면 채팅만 측정한다.
+import fs from 'node:fs';
+
+const BASE_URL = process.env.BASE_URL || 'http://localhost:8080';
+const TOKEN = process.env.TOKEN;
+const CHAT_VUS = parseInt(process.env.CHAT_VUS || '400');
+const OCR_VUS = parseInt(process.env.OCR_VUS || '100');
+const RAMP_S = parseInt(process.env.RAMP_S || '300');
+const HOLD_S = 60;
+const DELAY_ABORT_EVAL_S = 30;
+const IMAGE = process.env.IMAGE ? fs.readFileSync(process.env.IMAGE) : null;
+
+if (!TOKEN) {
+    throw new Error('TOKEN (access token) is required');
+}
+
+const started = Date.now();
+const elapsed = () => (Date.now() - started) / 1000;
+
+// k6 임계값과 같이 시작부터 누적해서 판정한다.
+const metrics = { requests: 0, failed: 0, chatWaiting: [], chatStream: [], ocrUpload: [] };
+const vus = { chat: 0, ocr: 0 };
+let stopped = false;
+
+function p95(values) {
+    if (values.length === 0) return 0;
+    const sorted = [...values].sort((a, b) => a - b);
+    return sorted[Math.floor(sorted.length * 0.95)];
+}
+
+function targetVus(max) {
+    const t = elapsed();
+    return t < RAMP_S ? Math.floor(max * t / RAMP_S) : max;
+}
+
+async function chat(vu, iter) {
+    const begin = Date.now();
+    metrics.requests++;
+    try {
+        const res = await fetch(`${BASE_URL}/api/accessory/chat`, {
+            method: 'POST',
+            body: JSON.stringify({ message: `21-15-9 thrusters 43kg, pull-ups #${vu}-${iter}` }),
+            headers: {
+                Authorization: `Bearer ${TOKEN}`,
+                'Content-Type': 'application/json',
+                Accept: 'text/event-stream',
+                'Conversation-Id': `loadtest-${vu}-${iter}`,
+            },
+        });
+        // 응답 헤더까지 = k6 의 http_req_waiting
+        metrics.chatWaiting.push(Date.now() - begin);
+        const body = await res.text();
+        if (res.status !== 200) {
+            metrics.failed++;
+        } else if (body.includes('event:done')) {
+            metrics.chatStream.push(Date.now() - begin);
+        }
+    } catch (e) {
+        metrics.failed++;
+    }
+}
+
+async function ocr() {
+    const begin = Date.now();
+    metrics.requests++;
+    try {
+        const form = new FormData();
+        form.append('file', new Blob([IMAGE], { type: 'image/jpeg' }), 'wod.jpg');
+        const res = await fetch(`${BASE_URL}/api/ocr`, {
+            method: 'POST',
+            body: form,
+            headers: { Authorization: `Bearer ${TOKEN}` },
+        });
+        await res.text();
+        if (res.status !== 200) {
+            metrics.failed++;
+        } else {
+            metrics.ocrUpload.push(Date.now() - begin);
+        }
+    } catch (e) {
+        metrics.failed++;
+    }
+}
+
+// VU 하나는 멈출 때까지 요청을 하나씩 이어서 보낸다. 목표 VU 수보다 번호가 커지면 스스로 끝난다.
+function ramp(name, max, request) {
+    let next = 1;
+    setInterval(() => {
+        while (!stopped && vus[name] < targetVus(max)) {
+            const vu = next++;
+            vus[name]++;
+            (async () => {
+                for (let iter = 0; !stopped && vu <= targetVus(max); iter++) {
+                    await request(vu, iter);
+                }
+                vus[name]--;
+            })();
+        }
+    }, 200);
+}
+
+function summary(label) {
+    return `[${elapsed().toFixed(0)}s]${label} chat_vus=${vus.chat} ocr_vus=${vus.ocr}`
+        + ` failed=${(metrics.failed / Math.max(1, metrics.requests) * 100).toFixed(2)}%`
+        + ` chat_waiting_p95=${p95(metrics.chatWaiting)}ms chat_stream_p95=${p95(metrics.chatStream)}ms`
+        + ` chat_streams_completed=${metrics.chatStream.length}`
+        + ` ocr_upload_p95=${p95(metrics.ocrUpload)}ms ocr_completed=${metrics.ocrUpload.length}`;
+}
+
+function breached() {
+    if (metrics.failed / Math.max(1, metrics.requests) >= 0.02) return 'http_req_failed';
+    if (p95(metrics.chatWaiting) >= 3000) return 'chat http_req_waiting';
+    if (p95(metrics.ocrUpload) >= 10000) return 'ocr_upload_duration';
+    return null;
+}
+
+ramp('chat', CHAT_VUS, chat);
+if (IMAGE) {
+    ramp('ocr', OCR_VUS, ocr);
+}
+
+const reporter = setInterval(() => {
+    console.log(summary(''));
+    if (elapsed() < DELAY_ABORT_EVAL_S) return;
+    const threshold = breached();
+    if (threshold || elapsed() >= RAMP_S + HOLD_S) {
+        stopped = true;
+        clearInterval(reporter);
+        console.log(summary(threshold ? ` ABORTED (${threshold})` : ' FINISHED'));
+        setTimeout(() => process.exit(0), 2000);
+    }
+}, 5000);
@@ -0,0 +1,105 @@
+// 채팅 스트림(SSE)과 OCR 업로드를 동시에 늘려가며, 노드 하나가 어디까지 버티는지 본다.
+// 플랫폼 스레드 모드와 가상 스레드 모드(VIRTUAL_THREADS_ENABLED=true)에서 각각 실행해 비교한다.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<access token> -e IMAGE=./wod.jpg loadtest/chat-ocr.js
+//
+// 옵션
+//   CHAT_VUS / OCR_VUS : 각 시나리오의 최대 동시 사용자 (기본 400 / 100)
+//   RAMP               : 최대까지 올리는 시간 (기본 5m)
+//   UNIQUE_WOD         : true 면 매 요청마다 다른 WOD 를 보내 응답 캐시를 우회한다 (기본 true)
+//
+// 실패율/지연 임계값을 넘으면 바로 중단되므로, 중단 시점의 vus 가 그 모드에서 버티는 동시 요청 수다.
+// 주의: 실제 LLM / Vision API 를 호출하므로 비용이 든다. 외부 API 없이 서버만 보려면 loadtest/stub-server.mjs 를 띄우고
+// 서버를 SPRING_AI_OPENAI_BASE_URL / GOOGLE_VISION_BASE_URL 로 stub 에 연결해 실행한다. (stub 의 응답 지연은 고정이므로
+// 두 모드의 차이는 서버 쪽에서만 생긴다)
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const CHAT_VUS = parseInt(__ENV.CHAT_VUS || '400');
+const OCR_VUS = parseInt(__ENV.OCR_VUS || '100');
+const RAMP = __ENV.RAMP || '5m';
+const UNIQUE_WOD = (__ENV.UNIQUE_WOD || 'true') === 'true';
+const IMAGE = __ENV.IMAGE ? open(__ENV.IMAGE, 'b') : null;
+
+const chatStreamDuration = new Trend('chat_stream_duration', true);
+const chatStreamsCompleted = new Counter('chat_streams_completed');
+const ocrUploadDuration = new Trend('ocr_upload_duration', true);
+
+function ramp(exec, vus) {
+    return {
+        executor: 'ramping-vus',
+        exec,
+        startVUs: 0,
+        stages: [
+            { duration: RAMP, target: vus },
+            { duration: '1m', target: vus },
+        ],
+        gracefulRampDown: '30s',
+    };
+}
+
+const scenarios = { chat: ramp('chat', CHAT_VUS) };
+// IMAGE 를 주지 않으면 채팅만 측정한다.
+if (IMAGE) {
+    scenarios.ocr = ramp('ocr', OCR_VUS);
+}
+
+export const options = {
+    scenarios,
+    thresholds: {
+        'http_req_failed': [{ threshold: 'rate<0.02', abortOnFail: true, delayAbortEval: '30s' }],
+        'http_req_waiting{scenario:chat}': [{ threshold: 'p(95)<3000', abortOnFail: true, delayAbortEval: '30s' }],
+        'ocr_upload_duration': [{ threshold: 'p(95)<10000', abortOnFail: true, delayAbortEval: '30s' }],
+    },
+};
+
+export function setup() {
+    if (!TOKEN) {
+        throw new Error('TOKEN (access token) is required');
+    }
+}
+
+function headers(extra) {
+    return Object.assign({ Authorization: `Bearer ${TOKEN}` }, extra);
+}
+
+export function chat() {
+    const wod = UNIQUE_WOD
+        ? `21-15-9 thrusters 43kg, pull-ups #${__VU}-${__ITER}`
+        : '21-15-9 thrusters 43kg, pull-ups';
+    const started = Date.now();
+    // k6 는 SSE 를 끝까지 받은 뒤 돌려준다. (done 이벤트까지의 전체 스트림 시간)
+    const res = http.post(`${BASE_URL}/api/accessory/chat`, JSON.stringify({ message: wod }), {
+        headers: headers({
+            'Content-Type': 'application/json',
+            'Accept': 'text/event-stream',
+            'Conversation-Id': `loadtest-${__VU}-${__ITER}`,
+        }),
+        timeout: '120s',
+        tags: { name: 'chat' },
+    });
+    const ok = check(res, {
+        'chat 200': (r) => r.status === 200,
+        'chat done event': (r) => r.body && r.body.includes('event:done'),
+    });
+    if (ok) {
+        chatStreamDuration.add(Date.now() - started);
+        chatStreamsCompleted.add(1);
+    }
+}
+
+export function ocr() {
+    const res = http.post(`${BASE_URL}/api/ocr`, {
+        file: http.file(IMAGE, 'wod.jpg', 'image/jpeg'),
+    }, {
+        headers: headers(),
+        timeout: '60s',
+        tags: { name: 'ocr' },
+    });
+    if (check(res, { 'ocr 200': (r) => r.status === 200 })) {
+        ocrUploadDuration.add(res.timings.duration);
+    }
+}
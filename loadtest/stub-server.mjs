@@ -0,0 +1,120 @@
+// 부하 테스트용 LLM(OpenAI chat completions) / Google Vision stub 서버. 외부 API 비용 없이 서버 자체의 한계를 본다.
+// 응답 지연을 실제 API 와 비슷하게 흉내 내므로, 요청을 오래 붙잡는 스트림이 스레드 모드별로 어떻게 쌓이는지 비교할 수 있다.
+//
+//   node loadtest/stub-server.mjs
+//
+// 서버는 stub 을 보도록 띄운다.
+//   SPRING_AI_OPENAI_BASE_URL=http://localhost:8089 SPRING_AI_OPENAI_API_KEY=stub \
+//   GOOGLE_VISION_BASE_URL=http://localhost:8089 GOOGLE_API_KEY=stub java -jar build/libs/*.jar
+//
+// 옵션 (환경 변수)
+//   STUB_PORT          : 포트 (기본 8089)
+//   STUB_LLM_FIRST_MS  : 첫 토큰까지의 지연 (기본 500)
+//   STUB_LLM_TOKENS    : 스트림 한 번에 보내는 토큰 수 (기본 80)
+//   STUB_LLM_TOKEN_MS  : 토큰 간격 (기본 25) -> 기본값이면 스트림 하나가 약 2.5초
+//   STUB_VISION_MS     : Vision 응답 지연 (기본 800)
+import http from 'node:http';
+
+const PORT = parseInt(process.env.STUB_PORT || '8089');
+const LLM_FIRST_MS = parseInt(process.env.STUB_LLM_FIRST_MS || '500');
+const LLM_TOKENS = parseInt(process.env.STUB_LLM_TOKENS || '80');
+const LLM_TOKEN_MS = parseInt(process.env.STUB_LLM_TOKEN_MS || '25');
+const VISION_MS = parseInt(process.env.STUB_VISION_MS || '800');
+
+const WOD_TEXT = 'AMRAP 12\n5 Power Clean 135/95 lb\n10 Box Jump 24/20 in\n15 Wall Ball 20/14 lb\n200m Run';
+
+const sleep = (ms) => new Promise((resolve) => setTimeout(resolve, ms));
+
+let inFlight = 0;
+let served = 0;
+
+function readBody(req) {
+    return new Promise((resolve, reject) => {
+        const chunks = [];
+        req.on('data', (chunk) => chunks.push(chunk));
+        req.on('end', () => resolve(Buffer.concat(chunks)));
+        req.on('error', reject);
+    });
+}
+
+function json(res, status, body) {
+    res.writeHead(status, { 'Content-Type': 'application/json' });
+    res.end(JSON.stringify(body));
+}
+
+function completionChunk(id, delta, finishReason) {
+    return {
+        id,
+        object: 'chat.completion.chunk',
+        created: Math.floor(Date.now() / 1000),
+        model: 'stub',
+        choices: [{ index: 0, delta, finish_reason: finishReason }],
+    };
+}
+
+async function chatCompletions(req, res) {
+    const request = JSON.parse((await readBody(req)).toString('utf8'));
+    const id = `chatcmpl-stub-${served}`;
+    await sleep(LLM_FIRST_MS);
+
+    if (!request.stream) {
+        // 요약(ConversationSummarizer) 같은 동기 호출
+        json(res, 200, {
+            id,
+            object: 'chat.completion',
+            created: Math.floor(Date.now() / 1000),
+            model: 'stub',
+            choices: [{ index: 0, message: { role: 'assistant', content: 'stub summary' }, finish_reason: 'stop' }],
+            usage: { prompt_tokens: 0, completion_tokens: 2, total_tokens: 2 },
+        });
+        return;
+    }
+
+    res.writeHead(200, { 'Content-Type': 'text/event-stream', 'Cache-Control': 'no-cache', Connection: 'keep-alive' });
+    const send = (payload) => res.write(`data: ${JSON.stringify(payload)}\n\n`);
+    send(completionChunk(id, { role: 'assistant', content: '' }, null));
+    for (let i = 0; i < LLM_TOKENS && !res.destroyed; i++) {
+        send(completionChunk(id, { content: `token${i} ` }, null));
+        await sleep(LLM_TOKEN_MS);
+    }
+    send(completionChunk(id, {}, 'stop'));
+    res.end('data: [DONE]\n\n');
+}
+
+async function annotate(req, res) {
+    const request = JSON.parse((await readBody(req)).toString('utf8'));
+    await sleep(VISION_MS);
+    const responses = (request.requests || []).map(() => ({
+        textAnnotations: [{ description: WOD_TEXT }],
+        fullTextAnnotation: { text: WOD_TEXT },
+    }));
+    json(res, 200, { responses });
+}
+
+const server = http.createServer(async (req, res) => {
+    inFlight++;
+    try {
+        if (req.method === 'POST' && req.url.startsWith('/v1/chat/completions')) {
+            await chatCompletions(req, res);
+        } else if (req.method === 'POST' && req.url.startsWith('/v1/images:annotate')) {
+            await annotate(req, res);
+        } else {
+            json(res, 404, { error: { message: `no stub for ${req.method} ${req.url}` } });
+        }
+        served++;
+    } catch (e) {
+        if (!res.headersSent) {
+            json(res, 500, { error: { message: String(e) } });
+        } else {
+            res.destroy(e);
+        }
+    } finally {
+        inFlight--;
+    }
+});
+
+// 서버가 stub 을 몇 개까지 동시에 붙잡는지 보여준다. (서버 쪽 동시 요청 한계와 함께 본다)
+setInterval(() => console.log(`[stub] in-flight=${inFlight} served=${served}`), 5000).unref();
+
+server.keepAliveTimeout = 65_000;
+server.listen(PORT, () => console.log(`[stub] listening on :${PORT}`));
@@ -0,0 +1,55 @@
+package org.spark.crossfit.auth;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spark.crossfit.auth.dto.IssuedTokenPair;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 서명 알고리즘별 발급/검증 처리량. 갱신 API 는 토큰 2개 발급(서명 2회), 일반 API 는 검증 1회 비용이 든다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public JwtAlgorithm algorithm;
+
+    private JwtTokenProvider provider;
+    private String accessToken;
+    private final String sid = UUID.randomUUID().toString();
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider(JwtBenchmarkSupport.config(algorithm));
+        accessToken = provider.issueAccessToken("bench@crossfit.org");
+    }
+
+    @Benchmark
+    public IssuedTokenPair issueTokenPair() {
+        return provider.issueTokenPair("bench@crossfit.org", sid);
+    }
+
+    @Benchmark
+    public Claims verifyAccessToken() {
+        return provider.validateAndGetClaims(accessToken);
+    }
+}
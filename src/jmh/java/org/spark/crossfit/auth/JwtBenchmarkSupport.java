@@ -0,0 +1,62 @@
+package org.spark.crossfit.auth;
+
+import org.spark.crossfit.config.CustomApplicationConfig;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+/**
+ * 벤치마크용 JWT 설정. 실행할 때마다 알고리즘에 맞는 키 쌍을 새로 만든다.
+ */
+public final class JwtBenchmarkSupport {
+
+    private JwtBenchmarkSupport() {
+    }
+
+    public static CustomApplicationConfig config() {
+        return config(JwtAlgorithm.RS256);
+    }
+
+    public static CustomApplicationConfig config(JwtAlgorithm algorithm) {
+        KeyPair keyPair = generateKeyPair(algorithm);
+
+        CustomApplicationConfig.Jwt jwt = new CustomApplicationConfig.Jwt();
+        jwt.setIssuer("crossfit-advisor");
+        jwt.setAudience("crossfit-advisor-web");
+        jwt.setAlgorithm(algorithm);
+        jwt.setKeyId("bench-key");
+        jwt.setPrivateKey(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        jwt.setPublicKey(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        jwt.setAccessTokenTtl(900L);
+        jwt.setRefreshTokenTtl(14L);
+        jwt.setAccessTokenPurpose("access");
+        jwt.setRefreshTokenPurpose("refresh");
+
+        CustomApplicationConfig config = new CustomApplicationConfig();
+        config.setJwt(jwt);
+        return config;
+    }
+
+    private static KeyPair generateKeyPair(JwtAlgorithm algorithm) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm.keyAlgorithm());
+            switch (algorithm) {
+                case RS256 -> generator.initialize(2048);
+                case ES256 -> generator.initialize(new ECGenParameterSpec("secp256r1"));
+                case EdDSA -> { }
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der)
+                + "\n-----END " + type + "-----";
+    }
+}
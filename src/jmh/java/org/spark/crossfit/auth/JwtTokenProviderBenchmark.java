@@ -0,0 +1,58 @@
+package org.spark.crossfit.auth;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spark.crossfit.auth.dto.IssuedTokenPair;
+import org.spark.crossfit.auth.dto.TokenPair;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 로그인/갱신 시 토큰 발급과 매 요청마다의 토큰 검증 비용.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider provider;
+    private String accessToken;
+    private String refreshToken;
+    private final String sid = UUID.randomUUID().toString();
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider(JwtBenchmarkSupport.config());
+        TokenPair pair = provider.issueTokenPair("bench@crossfit.org", UUID.randomUUID().toString()).tokenPair();
+        accessToken = pair.accessToken();
+        refreshToken = pair.refreshToken();
+    }
+
+    @Benchmark
+    public IssuedTokenPair issueTokenPair() {
+        return provider.issueTokenPair("bench@crossfit.org", sid);
+    }
+
+    @Benchmark
+    public Claims validateAccessToken() {
+        return provider.validateAndGetClaims(accessToken);
+    }
+
+    @Benchmark
+    public Claims validateRefreshToken() {
+        return provider.validateAndGetClaims(refreshToken);
+    }
+}
@@ -0,0 +1,69 @@
+package org.spark.crossfit.auth.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spark.crossfit.auth.JwtBenchmarkSupport;
+import org.spark.crossfit.auth.JwtTokenProvider;
+import org.spark.crossfit.auth.VerifiedTokenCache;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인증이 필요한 모든 API 요청이 거치는 필터 비용.
+ * 같은 토큰을 반복하므로 검증 캐시 hit 경로를 잰다. (miss 경로는 JwtTokenProviderBenchmark.validateAccessToken)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest authenticated;
+    private MockHttpServletRequest anonymous;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        CustomApplicationConfig config = JwtBenchmarkSupport.config();
+        JwtTokenProvider provider = new JwtTokenProvider(config);
+        VerifiedTokenCache cache = new VerifiedTokenCache(provider, config, new SimpleMeterRegistry());
+        filter = new JwtAuthenticationFilter(cache, (request, response, e) -> response.setStatus(401));
+
+        authenticated = new MockHttpServletRequest("GET", "/api/user/me");
+        authenticated.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + provider.issueAccessToken("bench@crossfit.org"));
+        anonymous = new MockHttpServletRequest("GET", "/api/user/me");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void bearerToken() throws Exception {
+        // OncePerRequestFilter 는 처리 후 already-filtered 속성을 지우므로 같은 요청 객체를 재사용할 수 있다.
+        filter.doFilter(authenticated, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void noToken() throws Exception {
+        filter.doFilter(anonymous, response, NO_OP_CHAIN);
+    }
+}
@@ -0,0 +1,129 @@
+package org.spark.crossfit.auth.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.lang.ref.Reference;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 세션이 많이 쌓인 상태에서의 리프레시 토큰 저장소 연산 비용 (memory / compact 비교).
+ * <p>
+ * 세션마다 유효 토큰 1개와 회전으로 폐기된 토큰 {@value #ROTATIONS}개를 넣어 둔다.
+ * 채우기 전후의 힙 사용량 차이로 토큰당 메모리를 어림해 시행이 끝날 때 출력한다.
+ * revokeSession 은 세션 하나를 지운 뒤 같은 세션을 다시 저장해 저장소 크기를 일정하게 유지한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RefreshTokenStoreBenchmark {
+
+    private static final int ROTATIONS = 3;
+
+    @Param({"memory", "compact"})
+    public String store;
+
+    @Param({"10000", "1000000"})
+    public int sessions;
+
+    private RefreshTokenStore tokenStore;
+    private String[] userIds;
+    private String[] sessionIds;
+    private String[] jtis;
+    private Instant expiresAt;
+    private long bytesPerToken;
+
+    @Setup
+    public void setUp() {
+        userIds = new String[sessions];
+        sessionIds = new String[sessions];
+        jtis = new String[sessions];
+        String[][] history = new String[sessions][ROTATIONS];
+        expiresAt = Instant.now().plus(14, ChronoUnit.DAYS);
+
+        for (int i = 0; i < sessions; i++) {
+            // 사용자당 기기 2개 정도
+            userIds[i] = "user" + (i / 2) + "@crossfit.org";
+            sessionIds[i] = UUID.randomUUID().toString();
+            jtis[i] = UUID.randomUUID().toString();
+            for (int r = 0; r < ROTATIONS; r++) {
+                history[i][r] = UUID.randomUUID().toString();
+            }
+        }
+
+        long before = usedHeap();
+        CustomApplicationConfig config = new CustomApplicationConfig();
+        tokenStore = "compact".equals(store) ? new CompactRefreshTokenStore(config) : new InMemoryRefreshTokenStore(config);
+        for (int i = 0; i < sessions; i++) {
+            tokenStore.save(userIds[i], sessionIds[i], history[i][0], expiresAt);
+            for (int r = 1; r < ROTATIONS; r++) {
+                tokenStore.rotate(userIds[i], sessionIds[i], history[i][r - 1], expiresAt, history[i][r], expiresAt);
+            }
+            tokenStore.rotate(userIds[i], sessionIds[i], history[i][ROTATIONS - 1], expiresAt, jtis[i], expiresAt);
+        }
+        // 입력 문자열(history 등)은 측정 전후 모두 살아 있으므로 차이에는 저장소가 만든 것만 남는다.
+        bytesPerToken = (usedHeap() - before) / ((long) sessions * (ROTATIONS + 1));
+        Reference.reachabilityFence(history);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.out.printf("%n%s store, %d sessions: ~%d bytes/token retained%n", store, sessions, bytesPerToken);
+        // 두 저장소 모두 정리 스레드를 가진다
+        ((DisposableBean) tokenStore).destroy();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public void saveAndRevoke() {
+        int i = ThreadLocalRandom.current().nextInt(sessions);
+        String jti = UUID.randomUUID().toString();
+        tokenStore.save(userIds[i], sessionIds[i], jti, expiresAt);
+        tokenStore.revoke(sessionIds[i], jti);
+    }
+
+    @Benchmark
+    public boolean existsHit() {
+        int i = ThreadLocalRandom.current().nextInt(sessions);
+        return tokenStore.exists(sessionIds[i], jtis[i]);
+    }
+
+    @Benchmark
+    public boolean existsMiss() {
+        int i = ThreadLocalRandom.current().nextInt(sessions);
+        return tokenStore.exists(sessionIds[i], sessionIds[i]);
+    }
+
+    @Benchmark
+    public void revokeSession() {
+        int i = ThreadLocalRandom.current().nextInt(sessions);
+        tokenStore.revokeSession(sessionIds[i]);
+        tokenStore.save(userIds[i], sessionIds[i], jtis[i], expiresAt);
+    }
+}
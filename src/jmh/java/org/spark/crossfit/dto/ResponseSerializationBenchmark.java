@@ -0,0 +1,77 @@
+package org.spark.crossfit.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spark.crossfit.auth.dto.StreamChunk;
+import org.spark.crossfit.auth.dto.TokenPair;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API 응답(CommonResult) 과 SSE 조각(StreamChunk) 의 Jackson 직렬화 비용.
+ * StreamChunk 는 코치 답변 한 번에 수백 번 직렬화된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private CommonResult<MyInfo> myInfo;
+    private CommonResult<TokenPair> tokenPair;
+    private CommonResult<OcrResult> ocrResult;
+    private StreamChunk streamChunk;
+
+    @Setup
+    public void setUp() {
+        // Spring MVC 메시지 컨버터와 같은 기본 설정
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        myInfo = CommonResult.success(MyInfo.builder()
+                .email("bench@crossfit.org")
+                .nickname("벤치")
+                .unitType(UnitType.KG)
+                .workoutMinutes(60)
+                .additionalInfo("왼쪽 어깨 부상 이력, 풀업 밴드 사용")
+                .build());
+        tokenPair = CommonResult.success(new TokenPair("a".repeat(700), 900, "r".repeat(700), 1_209_600));
+        ocrResult = CommonResult.success(new OcrResult(
+                "AMRAP 12 min\n5 Power Clean 135/95 lb\n10 Box Jump 24/20 in\n15 Wall Ball 20/14 lb\n200m Run"));
+        streamChunk = new StreamChunk("오늘 WOD 는 파워 클린 무게를 1RM 의 60% 정도로 ");
+    }
+
+    @Benchmark
+    public byte[] myInfo() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(myInfo);
+    }
+
+    @Benchmark
+    public byte[] tokenPair() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tokenPair);
+    }
+
+    @Benchmark
+    public byte[] ocrResult() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ocrResult);
+    }
+
+    @Benchmark
+    public String streamChunk() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(streamChunk);
+    }
+}
@@ -0,0 +1,124 @@
+package org.spark.crossfit.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OCR 전처리 전/후의 Vision 요청 페이로드 크기와 준비 시간을 비교한다.
+ * <p>
+ * original: 원본 JPEG 을 그대로 Base64 인코딩 (기존 경로)
+ * preprocessed: 축소/흑백/재압축 후 Base64 인코딩
+ * 페이로드 크기는 trial 종료 시 출력한다.
+ * <p>
+ * 로컬에서 드는 비용(전처리 시간)과 줄어드는 페이로드만 잰다. Vision 호출은 하지 않으므로 전체 OCR 지연이 줄어드는지
+ * (업로드/Vision 처리에서 줄어든 시간이 전처리 시간보다 큰지)와 인식 결과가 같은지는 실제 API 로 따로 비교해야 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OcrImagePreprocessorBenchmark {
+
+    // 휴대폰 카메라 기준 12MP / 8MP
+    @Param({"4032x3024", "3264x2448"})
+    public String resolution;
+
+    private ByteArrayResource original;
+    private OcrImagePreprocessor preprocessor;
+
+    private int originalPayloadBytes;
+    private int preprocessedPayloadBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] size = resolution.split("x");
+        original = new ByteArrayResource(whiteboardPhoto(Integer.parseInt(size[0]), Integer.parseInt(size[1])));
+        preprocessor = new OcrImagePreprocessor(new CustomApplicationConfig(), new ThreadPoolTaskExecutor());
+
+        originalPayloadBytes = original().length();
+        preprocessedPayloadBytes = preprocessed().length();
+    }
+
+    @Benchmark
+    public String original() {
+        return Base64.getEncoder().encodeToString(original.getByteArray());
+    }
+
+    @Benchmark
+    public String preprocessed() throws IOException {
+        return Base64.getEncoder().encodeToString(preprocessor.transcode(original));
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%n[%s] upload image=%d bytes, payload original=%d bytes, preprocessed=%d bytes%n",
+                resolution, original.contentLength(), originalPayloadBytes, preprocessedPayloadBytes);
+    }
+
+    /**
+     * 글씨 + 센서 노이즈가 있는 화이트보드 사진을 흉내 낸 JPEG.
+     */
+    private static byte[] whiteboardPhoto(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(235, 235, 228));
+        g.fillRect(0, 0, width, height);
+        g.setColor(new Color(30, 30, 120));
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, height / 25));
+        String[] lines = {
+                "WOD - AMRAP 12 min", "5 Power Clean 135/95 lb", "10 Box Jump 24/20 in",
+                "15 Wall Ball 20/14 lb", "200m Run", "Strength: Back Squat 5x5 @ 70%"
+        };
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], width / 12, height / 8 + i * height / 8);
+        }
+        g.dispose();
+
+        Random random = new Random(42);
+        for (int y = 0; y < height; y += 2) {
+            for (int x = 0; x < width; x += 2) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(17) - 8;
+                int r = clamp(((rgb >> 16) & 0xFF) + noise);
+                int gr = clamp(((rgb >> 8) & 0xFF) + noise);
+                int b = clamp((rgb & 0xFF) + noise);
+                image.setRGB(x, y, (r << 16) | (gr << 8) | b);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -3,27 +3,58 @@ package org.spark.crossfit.ai;
 
 import lombok.RequiredArgsConstructor;
 import org.spark.crossfit.auth.dto.StreamChunk;
+import org.spark.crossfit.dto.MyInfo;
 import org.spark.crossfit.dto.command.ChatCommand;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.Disposable;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @Component
 @RequiredArgsConstructor
 public class AccessoryAgentOrchestrator {
+    // 캐시된 응답을 재생할 때 한 번에 보내는 글자 수
+    private static final int REPLAY_CHUNK_SIZE = 64;
+
     private final ChatClient accessoryChatClient;
+    private final ChatMemory chatMemory;
+    private final WodResponseCache wodResponseCache;
+    // 가상 스레드 모드면 가상 스레드, 아니면 boundedElastic (ThreadingConfig)
+    private final Scheduler sseScheduler;
+
+    public void stream(String conversationId, ChatCommand command, Supplier<MyInfo> profile, SseEmitter emitter) {
+        // 첫 턴(WOD 분석)만 캐시 대상. 프로필 조회도 첫 턴일 때만 한다.
+        String cacheKey = chatMemory.get(conversationId).isEmpty()
+                ? wodResponseCache.keyOf(command.message(), profile.get())
+                : null;
+        String cached = cacheKey == null ? null : wodResponseCache.get(cacheKey);
 
-    public void stream(String conversationId, ChatCommand command, SseEmitter emitter) {
-        var flux =accessoryChatClient.prompt()
-                .user(command.message())
-                .advisors(a -> a.param("Conversation-Id", conversationId))
-                .stream()
-                .content();
+        Flux<String> flux;
+        StringBuilder collected;
+        if (cached != null) {
+            // LLM 호출 없이 advisor 가 했을 것과 동일하게 메모리에 기록한 뒤 재생
+            chatMemory.add(conversationId, List.of(new UserMessage(command.message()), new AssistantMessage(cached)));
+            flux = Flux.fromIterable(split(cached));
+            collected = null;
+        } else {
+            flux = accessoryChatClient.prompt()
+                    .user(command.message())
+                    .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, conversationId))
+                    .stream()
+                    .content();
+            collected = cacheKey == null ? null : new StringBuilder();
+        }
 
         AtomicReference<Disposable> subRef = new AtomicReference<>();
 
@@ -38,10 +69,11 @@ public class AccessoryAgentOrchestrator {
 
 
         subRef.set(
-                flux.publishOn(Schedulers.boundedElastic()) // send()가 블로킹/IO라 안전하게
+                flux.publishOn(sseScheduler) // send()가 블로킹/IO라 안전하게
                         .subscribe(
                                 chunk -> {
                                     try {
+                                        if (collected != null) collected.append(chunk);
                                         emitter.send(SseEmitter.event().name("message").data(new StreamChunk(chunk)));
                                     } catch (IOException clientGone) {
                                         // 탭 닫음/네트워크 끊김이 대부분 -> 조용히 종료
@@ -61,6 +93,8 @@ public class AccessoryAgentOrchestrator {
                                     emitter.complete();
                                 },
                                 () -> {
+                                    // 끝까지 정상 수신한 응답만 캐시
+                                    if (collected != null) wodResponseCache.put(cacheKey, collected.toString());
                                     dispose.run();
                                     safeSend(emitter, "done", "");
                                     emitter.complete();
@@ -69,6 +103,15 @@ public class AccessoryAgentOrchestrator {
         );
 
     }
+
+    private static List<String> split(String text) {
+        List<String> chunks = new ArrayList<>(text.length() / REPLAY_CHUNK_SIZE + 1);
+        for (int i = 0; i < text.length(); i += REPLAY_CHUNK_SIZE) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + REPLAY_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
     private void safeSend(SseEmitter emitter, String name, Object data) {
         try {
             emitter.send(SseEmitter.event().name(name).data(data));
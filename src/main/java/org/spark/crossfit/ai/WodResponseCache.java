@@ -0,0 +1,89 @@
+package org.spark.crossfit.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.dto.MyInfo;
+import org.spark.crossfit.util.DigestUtil;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 첫 턴(WOD 분석) 응답 캐시.
+ * <p>
+ * 같은 박스 회원들은 같은 WOD 를 붙여넣거나 촬영하므로, 정규화한 WOD 텍스트 + 프로필 필드를 키로
+ * 완성된 코치 답변을 보관해 두고 LLM 호출 없이 재생한다.
+ */
+@Component
+public class WodResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern POUNDS = Pattern.compile("(\\d)\\s*(?:lbs?|pounds?|#)(?![a-z])");
+    private static final Pattern KILOGRAMS = Pattern.compile("(\\d)\\s*(?:kgs?|kilograms?|kilos?)(?![a-z])");
+    private static final Pattern METERS = Pattern.compile("(\\d)\\s*(?:m|meters?|metres?)(?![a-z])");
+    private static final Pattern CALORIES = Pattern.compile("(\\d)\\s*(?:cals?|calories?)(?![a-z])");
+    private static final Pattern MINUTES = Pattern.compile("(\\d)\\s*(?:mins?|minutes?|분)(?![a-z])");
+    private static final Pattern SECONDS = Pattern.compile("(\\d)\\s*(?:s|secs?|seconds?|초)(?![a-z])");
+    private static final Pattern TIMES = Pattern.compile("(\\d)\\s*[x×*]\\s*(\\d)");
+
+    private final Cache<String, String> cache;
+    private final boolean enabled;
+
+    public WodResponseCache(CustomApplicationConfig config, MeterRegistry meterRegistry) {
+        var options = config.getResponseCache();
+        this.enabled = options.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(options.getMaxEntries())
+                .expireAfterWrite(options.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "wod.response");
+    }
+
+    /**
+     * 캐시를 쓰지 않는 설정이면 null 을 반환한다.
+     */
+    @Nullable
+    public String keyOf(String wodText, MyInfo profile) {
+        if (!enabled || wodText == null || wodText.isBlank()) {
+            return null;
+        }
+        String key = normalize(wodText)
+                + "|" + profile.getUnitType()
+                + "|" + profile.getWorkoutMinutes()
+                + "|" + (profile.getAdditionalInfo() == null ? "" : normalize(profile.getAdditionalInfo()));
+        return DigestUtil.sha256Hex(key);
+    }
+
+    @Nullable
+    public String get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, String response) {
+        if (!response.isBlank()) {
+            cache.put(key, response);
+        }
+    }
+
+    /**
+     * 공백, 대소문자, 단위 표기 차이를 제거한다. (예: "95 LBS" / "95lb" / "95#" -> "95lb")
+     */
+    static String normalize(String text) {
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        s = WHITESPACE.matcher(s).replaceAll(" ").strip();
+        s = POUNDS.matcher(s).replaceAll("$1lb");
+        s = KILOGRAMS.matcher(s).replaceAll("$1kg");
+        s = METERS.matcher(s).replaceAll("$1m");
+        s = CALORIES.matcher(s).replaceAll("$1cal");
+        s = MINUTES.matcher(s).replaceAll("$1min");
+        s = SECONDS.matcher(s).replaceAll("$1sec");
+        return TIMES.matcher(s).replaceAll("$1x$2");
+    }
+}
@@ -0,0 +1,225 @@
+package org.spark.crossfit.ai.memory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 전체 바이트 예산과 유휴 TTL 로 크기가 제한되는 메모리 기반 ChatMemoryRepository.
+ * <p>
+ * 대화별 메시지 크기를 추정해 합계를 관리하고, 예산을 넘으면 가장 오래 접근되지 않은 대화부터(LRU) 내보낸다.
+ * 유휴 TTL 이 지난 대화는 다음 접근 시점에 함께 정리하므로 별도 스케줄러 스레드가 필요 없다.
+ */
+public class BoundedChatMemoryRepository implements ChatMemoryWindowRepository, MeterBinder {
+
+    // Message 객체 + metadata 맵 + String 헤더의 대략적인 고정 비용
+    private static final long MESSAGE_OVERHEAD_BYTES = 96;
+
+    private record Entry(List<Message> messages, long bytes, long lastAccessNanos) {
+        Entry touch(long now) {
+            return new Entry(messages, bytes, now);
+        }
+    }
+
+    private final long maxBytes;
+    private final long idleTtlNanos;
+    private final Predicate<String> pinned;
+
+    // accessOrder = true -> 순회 순서가 곧 LRU 순서
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong conversations = new AtomicLong();
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+
+    public BoundedChatMemoryRepository(CustomApplicationConfig.ChatMemoryOptions options) {
+        this(options, conversationId -> false);
+    }
+
+    /**
+     * @param pinned true 를 반환하는 대화는 축출 대상에서 제외한다. (예: 아직 DB 에 기록되지 않은 대화)
+     */
+    public BoundedChatMemoryRepository(CustomApplicationConfig.ChatMemoryOptions options, Predicate<String> pinned) {
+        this.maxBytes = options.getMaxBytes();
+        this.idleTtlNanos = options.getIdleTtl().toNanos();
+        this.pinned = pinned;
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        lock.lock();
+        try {
+            return List.copyOf(entries.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        List<Message> messages = getIfPresent(conversationId);
+        return messages == null ? List.of() : messages;
+    }
+
+    /**
+     * 메모리에 올라와 있지 않은 대화는 null 을 반환한다. (빈 대화와 구분하기 위함)
+     */
+    @Nullable
+    public List<Message> getIfPresent(String conversationId) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(conversationId);
+            if (entry == null) {
+                return null;
+            }
+            if (isIdle(entry, now) && !pinned.test(conversationId)) {
+                remove(conversationId);
+                idleEvictions.incrementAndGet();
+                return null;
+            }
+            entries.put(conversationId, entry.touch(now));
+            return entry.messages();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        List<Message> copy = List.copyOf(messages);
+        long bytes = estimateBytes(copy);
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            Entry previous = entries.put(conversationId, new Entry(copy, bytes, now));
+            if (previous == null) {
+                conversations.incrementAndGet();
+                totalBytes.addAndGet(bytes);
+            } else {
+                totalBytes.addAndGet(bytes - previous.bytes());
+            }
+            evict(conversationId, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        lock.lock();
+        try {
+            remove(conversationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 스냅샷용 복사본. 오래 접근되지 않은 대화부터 담고, 접근 순서를 건드리지 않는다.
+     */
+    public Map<String, List<Message>> snapshot() {
+        lock.lock();
+        try {
+            Map<String, List<Message>> copy = new LinkedHashMap<>(entries.size() * 2);
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                copy.put(e.getKey(), e.getValue().messages());
+            }
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long totalBytes() {
+        return totalBytes.get();
+    }
+
+    public long conversationCount() {
+        return conversations.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.memory.conversations", conversations, AtomicLong::get)
+                .description("메모리에 적재된 대화 수")
+                .register(registry);
+        Gauge.builder("chat.memory.bytes", totalBytes, AtomicLong::get)
+                .description("메모리에 적재된 대화의 추정 바이트 합계")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("chat.memory.bytes.max", () -> maxBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.evictions", sizeEvictions, AtomicLong::doubleValue)
+                .description("바이트 예산 초과로 축출된 대화 수")
+                .tag("reason", "size")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.evictions", idleEvictions, AtomicLong::doubleValue)
+                .description("유휴 TTL 경과로 축출된 대화 수")
+                .tag("reason", "idle")
+                .register(registry);
+    }
+
+    private void evict(String justWritten, long now) {
+        // 1) 가장 오래된 쪽부터 유휴 대화 정리, 2) 예산 초과분을 LRU 순으로 정리
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            String conversationId = eldest.getKey();
+            if (conversationId.equals(justWritten)) {
+                break;
+            }
+
+            boolean idle = isIdle(eldest.getValue(), now);
+            if (!idle && totalBytes.get() <= maxBytes) {
+                break;
+            }
+            if (pinned.test(conversationId)) {
+                continue;
+            }
+
+            it.remove();
+            conversations.decrementAndGet();
+            totalBytes.addAndGet(-eldest.getValue().bytes());
+            (idle ? idleEvictions : sizeEvictions).incrementAndGet();
+        }
+    }
+
+    private void remove(String conversationId) {
+        Entry removed = entries.remove(conversationId);
+        if (removed != null) {
+            conversations.decrementAndGet();
+            totalBytes.addAndGet(-removed.bytes());
+        }
+    }
+
+    private boolean isIdle(Entry entry, long now) {
+        return now - entry.lastAccessNanos() > idleTtlNanos;
+    }
+
+    static long estimateBytes(List<Message> messages) {
+        long bytes = 0;
+        for (Message message : messages) {
+            String text = message.getText();
+            // 한글이 섞이면 String 이 UTF-16 으로 저장되므로 문자당 2바이트로 보수적으로 계산
+            bytes += MESSAGE_OVERHEAD_BYTES + (text == null ? 0 : 2L * text.length());
+        }
+        return bytes;
+    }
+}
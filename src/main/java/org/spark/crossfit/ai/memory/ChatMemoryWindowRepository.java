@@ -0,0 +1,72 @@
+package org.spark.crossfit.ai.memory;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대화 윈도우의 변경분을 직접 받는 ChatMemoryRepository.
+ * <p>
+ * saveAll 은 바뀐 윈도우 전체만 넘기므로, 어디까지가 기존 메시지이고 무엇이 새로 붙었는지 저장소가 추측해야 한다.
+ * 같은 메시지가 반복되면 그 추측이 틀린다. {@link TokenBudgetChatMemory} 는 잘라낸 턴 수와 새로 붙인 턴을 이 메서드로 넘긴다.
+ */
+public interface ChatMemoryWindowRepository extends ChatMemoryRepository {
+
+    /**
+     * 기존 턴 뒤에 appended 를 붙인 뒤 앞에서부터 trimmed 개를 잘라낸다. 맨 앞 요약(SystemMessage)은 그대로 둔다.
+     * 기본 구현은 결과 윈도우를 saveAll 로 통째로 저장한다.
+     */
+    default void append(String conversationId, int trimmed, List<Message> appended) {
+        saveAll(conversationId, appendTo(findByConversationId(conversationId), trimmed, appended));
+    }
+
+    /**
+     * 맨 앞 요약만 바꾸고(없으면 추가) 턴은 그대로 둔다.
+     * 기본 구현은 결과 윈도우를 saveAll 로 통째로 저장한다.
+     */
+    default void replaceSummary(String conversationId, Message summary) {
+        saveAll(conversationId, withSummary(findByConversationId(conversationId), summary));
+    }
+
+    /**
+     * {@link #append} 를 적용한 뒤의 윈도우.
+     */
+    static List<Message> appendTo(List<Message> current, int trimmed, List<Message> appended) {
+        int summary = summaryOf(current) == null ? 0 : 1;
+
+        List<Message> turns = new ArrayList<>(current.size() - summary + appended.size());
+        turns.addAll(current.subList(summary, current.size()));
+        turns.addAll(appended);
+
+        List<Message> window = new ArrayList<>(turns.size() + summary);
+        window.addAll(current.subList(0, summary));
+        window.addAll(turns.subList(Math.min(trimmed, turns.size()), turns.size()));
+        return window;
+    }
+
+    /**
+     * {@link #replaceSummary} 를 적용한 뒤의 윈도우.
+     */
+    static List<Message> withSummary(List<Message> current, Message summary) {
+        List<Message> window = new ArrayList<>(current.size() + 1);
+        window.add(summary);
+        window.addAll(summaryOf(current) == null ? current : current.subList(1, current.size()));
+        return window;
+    }
+
+    /**
+     * 윈도우 맨 앞의 요약. 없으면 null.
+     */
+    @Nullable
+    static Message summaryOf(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return null;
+        }
+        Message first = messages.getFirst();
+        return first.getMessageType() == MessageType.SYSTEM ? first : null;
+    }
+}
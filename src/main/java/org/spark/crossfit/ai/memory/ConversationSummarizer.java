@@ -0,0 +1,50 @@
+package org.spark.crossfit.ai.memory;
+
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * 오래된 대화 턴을 기존 요약과 합쳐 새 요약을 만든다.
+ * 메모리 advisor 가 없는 별도 ChatClient 를 사용해야 요약 요청이 대화 메모리에 섞이지 않는다.
+ */
+public class ConversationSummarizer {
+
+    private final ChatClient summaryChatClient;
+    private final String systemPrompt;
+    private final int maxChars;
+
+    public ConversationSummarizer(ChatClient summaryChatClient, String systemPrompt, int maxChars) {
+        this.summaryChatClient = summaryChatClient;
+        this.systemPrompt = systemPrompt;
+        this.maxChars = maxChars;
+    }
+
+    public String summarize(@Nullable String previousSummary, List<Message> evicted) {
+        StringBuilder transcript = new StringBuilder();
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            transcript.append("[이전 요약]\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("[새로 밀려난 대화]\n");
+        for (Message message : evicted) {
+            transcript.append(message.getMessageType() == MessageType.USER ? "사용자: " : "코치: ")
+                    .append(message.getText())
+                    .append('\n');
+        }
+
+        String summary = summaryChatClient.prompt()
+                .system(systemPrompt)
+                .user(transcript.toString())
+                .call()
+                .content();
+
+        if (summary == null) {
+            return previousSummary == null ? "" : previousSummary;
+        }
+        summary = summary.strip();
+        return summary.length() > maxChars ? summary.substring(0, maxChars) : summary;
+    }
+}
@@ -0,0 +1,313 @@
+package org.spark.crossfit.ai.memory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PostgreSQL 에 대화를 영속화하는 write-behind ChatMemoryRepository.
+ * <p>
+ * 대화별 최근 {@code maxMessages} 개는 메모리(hot window)에서 바로 응답하고,
+ * {@link #append} 로 받은 새 메시지만 큐에 쌓아 단일 writer 스레드가 multi-row insert 로 모아서 기록한다.
+ * writer 가 하나뿐이라 쓰기에는 커넥션을 최대 1개만 사용하고, DB 조회는 hot window 에 없는 대화를 처음 읽을 때만 발생한다.
+ * hot window 는 {@link BoundedChatMemoryRepository} 로 크기가 제한되며, 아직 기록되지 않은 대화는 축출하지 않는다.
+ * 대화 맨 앞의 요약(SystemMessage)은 chat_memory_summary 에 대화당 1행으로 두고 바뀔 때마다 갱신한다.
+ * 그래서 요약이 바뀌어도 chat_memory 의 대화 기록은 지우거나 다시 쓰지 않는다.
+ */
+@Slf4j
+public class JdbcWriteBehindChatMemoryRepository implements ChatMemoryWindowRepository, MeterBinder, DisposableBean {
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    // 요약 1행 + 최근 턴 (chat_memory 에 예전 방식으로 남아 있는 요약 행은 턴으로 읽지 않는다)
+    private static final String SELECT_RECENT_SQL = """
+            SELECT message_type, content FROM (
+                SELECT 'SYSTEM' AS message_type, content, 0 AS part, 0 AS id FROM chat_memory_summary
+                WHERE conversation_id = ?
+                UNION ALL
+                SELECT * FROM (
+                    SELECT message_type, content, 1 AS part, id FROM chat_memory
+                    WHERE conversation_id = ? AND message_type <> 'SYSTEM' ORDER BY id DESC LIMIT ?
+                ) turns
+            ) recent ORDER BY part, id
+            """;
+
+    private static final String UPSERT_SUMMARY_SQL = """
+            INSERT INTO chat_memory_summary (conversation_id, content, updated_at) VALUES (?, ?, ?)
+            ON CONFLICT (conversation_id) DO UPDATE SET content = EXCLUDED.content, updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String DELETE_SQL = """
+            WITH summary AS (DELETE FROM chat_memory_summary WHERE conversation_id = ?)
+            DELETE FROM chat_memory WHERE conversation_id = ?
+            """;
+
+    private static final String INSERT_PREFIX_SQL =
+            "INSERT INTO chat_memory (conversation_id, message_type, content, created_at) VALUES ";
+
+    private sealed interface PendingWrite permits Append, Summary, Delete {}
+    private record Append(String conversationId, MessageType type, String content, Instant createdAt) implements PendingWrite {}
+    private record Summary(String conversationId, String content, Instant updatedAt) implements PendingWrite {}
+    private record Delete(String conversationId) implements PendingWrite {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxMessages;
+    private final int batchSize;
+
+    private final BoundedChatMemoryRepository hot;
+
+    // conversationId -> 큐에 남아 있는 쓰기 수 (0 이 되면 제거)
+    private final Map<String, Integer> pendingWrites = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public JdbcWriteBehindChatMemoryRepository(JdbcTemplate jdbcTemplate, CustomApplicationConfig.ChatMemoryOptions options) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxMessages = options.getMaxMessages();
+        this.batchSize = options.getWriteBatchSize();
+        this.queue = new ArrayBlockingQueue<>(options.getWriteQueueCapacity());
+        this.hot = new BoundedChatMemoryRepository(options, pendingWrites::containsKey);
+
+        this.writer = Thread.ofPlatform()
+                .name("chat-memory-writer")
+                .daemon(true)
+                .start(this::drainLoop);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        Set<String> ids = new LinkedHashSet<>(
+                jdbcTemplate.queryForList("SELECT DISTINCT conversation_id FROM chat_memory", String.class));
+        ids.addAll(hot.findConversationIds());
+        return List.copyOf(ids);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        List<Message> messages = hot.getIfPresent(conversationId);
+        if (messages == null) {
+            messages = loadRecent(conversationId);
+            hot.saveAll(conversationId, messages);
+        }
+        return messages;
+    }
+
+    @Override
+    public void append(String conversationId, int trimmed, List<Message> appended) {
+        // DB 에는 잘라낸 턴도 남겨두고, 새로 붙인 메시지만 기록한다.
+        saveHot(conversationId, ChatMemoryWindowRepository.appendTo(findByConversationId(conversationId), trimmed, appended));
+        enqueueAppends(conversationId, appended);
+    }
+
+    @Override
+    public void replaceSummary(String conversationId, Message summary) {
+        // 턴은 그대로 두고 요약 행만 갱신한다.
+        saveHot(conversationId, ChatMemoryWindowRepository.withSummary(findByConversationId(conversationId), summary));
+        enqueue(new Summary(conversationId, summary.getText(), Instant.now()));
+    }
+
+    /**
+     * 대화 전체를 messages 로 바꾼다. DB 의 기존 기록도 지우고 다시 쓰므로, 이어 붙일 때는 {@link #append} 를 쓴다.
+     */
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        saveHot(conversationId, messages);
+        enqueue(new Delete(conversationId));
+        Message summary = ChatMemoryWindowRepository.summaryOf(messages);
+        if (summary != null) {
+            enqueue(new Summary(conversationId, summary.getText(), Instant.now()));
+        }
+        enqueueAppends(conversationId, messages);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        hot.deleteByConversationId(conversationId);
+        enqueue(new Delete(conversationId));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        hot.bindTo(registry);
+        FunctionCounter.builder("chat.memory.writes.dropped", droppedWrites, AtomicLong::doubleValue)
+                .description("write-behind 큐가 가득 차 DB 에 기록하지 못한 쓰기 수")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // 남은 큐를 비울 시간을 준 뒤 종료
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (!queue.isEmpty()) {
+            log.warn("Chat memory writer stopped with {} pending writes", queue.size());
+        }
+    }
+
+    private List<Message> loadRecent(String conversationId) {
+        return List.copyOf(jdbcTemplate.query(SELECT_RECENT_SQL,
+                (rs, rowNum) -> toMessage(MessageType.valueOf(rs.getString("message_type")), rs.getString("content")),
+                conversationId, conversationId, maxMessages - 1));
+    }
+
+    private void saveHot(String conversationId, List<Message> messages) {
+        // 요약 자리 1개는 남기고 최근 턴만 maxMessages - 1 개로 자른다.
+        Message summary = ChatMemoryWindowRepository.summaryOf(messages);
+        int from = Math.max(summary == null ? 0 : 1, messages.size() - (maxMessages - 1));
+        List<Message> turns = messages.subList(from, messages.size());
+        hot.saveAll(conversationId, summary == null ? turns : ChatMemoryWindowRepository.withSummary(turns, summary));
+    }
+
+    private void enqueueAppends(String conversationId, List<Message> messages) {
+        Instant now = Instant.now();
+        for (Message message : messages) {
+            // 요약은 chat_memory_summary 에만 둔다.
+            if (isPersistable(message) && message.getMessageType() != MessageType.SYSTEM) {
+                enqueue(new Append(conversationId, message.getMessageType(), message.getText(), now));
+            }
+        }
+    }
+
+    private static boolean isPersistable(Message message) {
+        MessageType type = message.getMessageType();
+        return (type == MessageType.USER || type == MessageType.ASSISTANT || type == MessageType.SYSTEM)
+                && message.getText() != null;
+    }
+
+    private static Message toMessage(MessageType type, String content) {
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            default -> throw new IllegalStateException("Unsupported message type: " + type);
+        };
+    }
+
+    private void enqueue(PendingWrite write) {
+        // 큐가 가득 찼다는 건 DB 가 한참 밀려 있다는 뜻 -> 채팅 요청을 막지 않고 영속화만 포기
+        String conversationId = conversationIdOf(write);
+        pendingWrites.merge(conversationId, 1, Integer::sum);
+        if (!queue.offer(write)) {
+            release(conversationId);
+            droppedWrites.incrementAndGet();
+            log.warn("Chat memory write queue is full. Dropping write for conversation: {}", conversationId);
+        }
+    }
+
+    private void release(String conversationId) {
+        pendingWrites.computeIfPresent(conversationId, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void drainLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in chat memory writer", e);
+            } finally {
+                // 기록 성공/실패와 관계없이 축출 보호 해제
+                batch.forEach(write -> release(conversationIdOf(write)));
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) throws InterruptedException {
+        // 연속된 Append 는 한 번의 insert 로 묶고, Summary/Delete 는 순서를 지켜 그 자리에서 실행
+        List<Append> appends = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            if (write instanceof Append append) {
+                appends.add(append);
+                continue;
+            }
+            insertWithRetry(appends);
+            appends.clear();
+            if (write instanceof Summary summary) {
+                executeWithRetry(() -> jdbcTemplate.update(UPSERT_SUMMARY_SQL,
+                        summary.conversationId(), summary.content(), Timestamp.from(summary.updatedAt())));
+            } else {
+                String conversationId = conversationIdOf(write);
+                executeWithRetry(() -> jdbcTemplate.update(DELETE_SQL, conversationId, conversationId));
+            }
+        }
+        insertWithRetry(appends);
+    }
+
+    private void insertWithRetry(List<Append> appends) throws InterruptedException {
+        if (appends.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX_SQL.length() + appends.size() * 16).append(INSERT_PREFIX_SQL);
+        Object[] args = new Object[appends.size() * 4];
+        for (int i = 0; i < appends.size(); i++) {
+            Append append = appends.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+            args[i * 4] = append.conversationId();
+            args[i * 4 + 1] = append.type().name();
+            args[i * 4 + 2] = append.content();
+            args[i * 4 + 3] = Timestamp.from(append.createdAt());
+        }
+
+        executeWithRetry(() -> jdbcTemplate.update(sql.toString(), args));
+    }
+
+    private void executeWithRetry(Runnable statement) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                statement.run();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    log.error("Failed to persist chat memory after {} attempts", attempt, e);
+                    return;
+                }
+                log.warn("Failed to persist chat memory (attempt {}), retrying", attempt, e);
+                Thread.sleep(200L * attempt);
+            }
+        }
+    }
+
+    private static String conversationIdOf(PendingWrite write) {
+        return switch (write) {
+            case Append append -> append.conversationId();
+            case Summary summary -> summary.conversationId();
+            case Delete delete -> delete.conversationId();
+        };
+    }
+}
@@ -0,0 +1,280 @@
+package org.spark.crossfit.ai.memory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.snapshot.MappedJournal;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.spark.crossfit.snapshot.MappedJournal.readString;
+import static org.spark.crossfit.snapshot.MappedJournal.writeString;
+
+/**
+ * 재시작해도 코칭 대화가 이어지도록 {@link BoundedChatMemoryRepository} 의 변경을 {@link MappedJournal} 에 남긴다.
+ * <p>
+ * 턴마다 윈도우 전체가 아니라 변경분(잘라낸 턴 수 + 새 턴, 바뀐 요약)만 기록한다. 스냅샷은 snapshotter 스레드에서
+ * 잠금 안에서 대화 목록만 복사하고(메시지 리스트는 불변이라 참조만 복사), 파일은 잠금 밖에서 쓴다.
+ * 바이트 예산/유휴 TTL 축출은 기록하지 않고, 복원 후 같은 규칙으로 다시 축출된다. (그래서 실행 중 축출됐던 대화는
+ * 복원한 윈도우가 실행 중보다 길 수 있다) 사용자/어시스턴트/시스템(요약) 메시지의 텍스트만 남기는 것은 jdbc 저장소와 같다.
+ */
+@Slf4j
+public class JournaledChatMemoryRepository implements ChatMemoryWindowRepository, MeterBinder, DisposableBean {
+
+    private static final byte SAVE_ALL = 1;
+    private static final byte DELETE = 2;
+    private static final byte APPEND = 3;
+    private static final byte SUMMARY = 4;
+
+    private final BoundedChatMemoryRepository delegate;
+    private final MappedJournal journal;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService snapshotter;
+
+    public JournaledChatMemoryRepository(BoundedChatMemoryRepository delegate, MappedJournal journal, Duration snapshotInterval)
+            throws IOException {
+        this.delegate = delegate;
+        this.journal = journal;
+
+        long started = System.nanoTime();
+        long records = journal.replay(this::apply);
+        log.info("Restored chat memory from {} records in {} ms",
+                records, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-memory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = snapshotInterval.toMillis();
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return delegate.findConversationIds();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        return delegate.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        lock.lock();
+        try {
+            delegate.saveAll(conversationId, messages);
+            append(out -> writeConversation(out, conversationId, messages));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void append(String conversationId, int trimmed, List<Message> appended) {
+        lock.lock();
+        try {
+            delegate.append(conversationId, trimmed, appended);
+            append(out -> {
+                out.writeByte(APPEND);
+                writeString(out, conversationId);
+                out.writeInt(trimmed);
+                writeMessages(out, appended);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void replaceSummary(String conversationId, Message summary) {
+        lock.lock();
+        try {
+            delegate.replaceSummary(conversationId, summary);
+            append(out -> {
+                out.writeByte(SUMMARY);
+                writeString(out, conversationId);
+                writeString(out, summary.getText());
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        lock.lock();
+        try {
+            delegate.deleteByConversationId(conversationId);
+            append(out -> {
+                out.writeByte(DELETE);
+                writeString(out, conversationId);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 현재 대화들을 스냅샷으로 쓰고 스냅샷에 담긴 저널을 버린다. 오래 접근되지 않은 대화부터 써서 복원 후에도 LRU 순서가 유지된다.
+     * 잠금은 대화 목록을 복사하는 동안과 파일을 교체할 때만 잡고, 쓰는 동안에는 대화가 계속 기록된다.
+     */
+    public void snapshot() throws IOException {
+        Map<String, List<Message>> conversations;
+        MappedJournal.Checkpoint checkpoint;
+        lock.lock();
+        try {
+            conversations = delegate.snapshot();
+            checkpoint = journal.checkpoint();
+        } finally {
+            lock.unlock();
+        }
+
+        Path written = journal.writeSnapshot(checkpoint, snapshotOf(conversations));
+
+        lock.lock();
+        try {
+            journal.install(checkpoint, written);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // 예외가 밖으로 나가면 스케줄이 취소되므로 로그만 남긴다.
+            log.warn("Failed to write chat memory snapshot", e);
+        }
+    }
+
+    private void append(MappedJournal.RecordWriter record) {
+        try {
+            if (!journal.append(record)) {
+                // 다음 주기까지 기다릴 수 없으므로 잠금을 잡은 채로 스냅샷을 쓴다.
+                // 이 변경은 이미 저장소에 반영돼 스냅샷에 담기므로 다시 기록하지 않는다. (APPEND 는 두 번 적용되면 안 된다)
+                journal.rewrite(snapshotOf(delegate.snapshot()));
+            }
+        } catch (IOException e) {
+            // 기록 실패로 채팅 요청을 막지는 않는다. 다음 스냅샷이 현재 상태를 다시 담는다.
+            log.warn("Failed to append chat memory journal", e);
+        }
+    }
+
+    private static MappedJournal.SnapshotSource snapshotOf(Map<String, List<Message>> conversations) {
+        return sink -> {
+            for (Map.Entry<String, List<Message>> e : conversations.entrySet()) {
+                sink.append(out -> writeConversation(out, e.getKey(), e.getValue()));
+            }
+        };
+    }
+
+    private static void writeConversation(DataOutput out, String conversationId, List<Message> messages) throws IOException {
+        out.writeByte(SAVE_ALL);
+        writeString(out, conversationId);
+        writeMessages(out, messages);
+    }
+
+    private static void writeMessages(DataOutput out, List<Message> messages) throws IOException {
+        List<Message> persistable = messages.stream()
+                .filter(JournaledChatMemoryRepository::isPersistable)
+                .toList();
+        out.writeInt(persistable.size());
+        for (Message message : persistable) {
+            writeString(out, message.getMessageType().name());
+            writeString(out, message.getText());
+        }
+    }
+
+    private static List<Message> readMessages(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<Message> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            MessageType type = MessageType.valueOf(readString(in));
+            messages.add(toMessage(type, readString(in)));
+        }
+        return messages;
+    }
+
+    private void apply(DataInput in) throws IOException {
+        switch (in.readByte()) {
+            case SAVE_ALL -> {
+                String conversationId = readString(in);
+                delegate.saveAll(conversationId, readMessages(in));
+            }
+            case APPEND -> {
+                String conversationId = readString(in);
+                int trimmed = in.readInt();
+                delegate.append(conversationId, trimmed, readMessages(in));
+            }
+            case SUMMARY -> {
+                String conversationId = readString(in);
+                delegate.replaceSummary(conversationId, new SystemMessage(readString(in)));
+            }
+            case DELETE -> delegate.deleteByConversationId(readString(in));
+            default -> throw new IOException("Unknown chat memory journal record");
+        }
+    }
+
+    private static boolean isPersistable(Message message) {
+        MessageType type = message.getMessageType();
+        return (type == MessageType.USER || type == MessageType.ASSISTANT || type == MessageType.SYSTEM)
+                && message.getText() != null;
+    }
+
+    private static Message toMessage(MessageType type, String content) {
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            default -> throw new IllegalStateException("Unsupported message type: " + type);
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        delegate.bindTo(registry);
+        Gauge.builder("snapshot.journal.used", journal, MappedJournal::usedBytes)
+                .tag("store", "chat-memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("snapshot.journal.capacity", journal, MappedJournal::capacityBytes)
+                .tag("store", "chat-memory")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        snapshotter.shutdown();
+        // 진행 중인 스냅샷이 끝난 뒤 종료 직전 상태를 스냅샷으로 남겨 다음 기동 때 저널 재생을 줄인다.
+        snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+        lock.lock();
+        try {
+            journal.rewrite(snapshotOf(delegate.snapshot()));
+        } finally {
+            lock.unlock();
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.spark.crossfit.ai.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 메시지 개수 대신 추정 토큰 수로 대화 윈도우를 제한하는 ChatMemory.
+ * <p>
+ * 대화가 {@code maxTokens} 를 넘으면 오래된 턴을 즉시 잘라내 {@code compactToTokens} 아래로 맞추고,
+ * 잘려나간 턴은 별도 executor 에서 기존 요약과 합쳐 대화 맨 앞의 요약(SystemMessage)으로 반영한다.
+ * 요약은 요청 경로 밖에서 만들어지므로, 요약이 늦더라도 프롬프트 크기는 항상 예산 안에 머문다.
+ */
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    static final String SUMMARY_PREFIX = "[이전 대화 요약]\n";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ChatMemoryWindowRepository repository;
+    private final ConversationSummarizer summarizer;
+    private final Executor summaryExecutor;
+    private final int maxTokens;
+    private final int compactToTokens;
+    private final int maxMessages;
+
+    // 같은 대화의 턴 추가/요약 반영이 겹치지 않도록 대화별 잠금 (가상 스레드 pinning 을 피하려고 ReentrantLock 사용)
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    // 대화별 요약 작업 체인. 요약은 잘려나간 순서대로 반영되어야 한다.
+    private final Map<String, CompletableFuture<Void>> summaryJobs = new ConcurrentHashMap<>();
+
+    public TokenBudgetChatMemory(
+            ChatMemoryWindowRepository repository,
+            ConversationSummarizer summarizer,
+            Executor summaryExecutor,
+            CustomApplicationConfig.ChatMemoryOptions options
+    ) {
+        this.repository = repository;
+        this.summarizer = summarizer;
+        this.summaryExecutor = summaryExecutor;
+        this.maxTokens = options.getMaxTokens();
+        this.compactToTokens = Math.min(options.getCompactToTokens(), options.getMaxTokens());
+        this.maxMessages = options.getMaxMessages();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> evicted;
+
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            List<Message> current = repository.findByConversationId(conversationId);
+            Message summary = ChatMemoryWindowRepository.summaryOf(current);
+
+            List<Message> turns = new ArrayList<>(current.size() + messages.size());
+            turns.addAll(summary == null ? current : current.subList(1, current.size()));
+            turns.addAll(messages);
+
+            int summaryTokens = summary == null ? 0 : TokenEstimator.estimate(summary);
+            int tokens = summaryTokens + TokenEstimator.estimate(turns);
+            // 요약 자리 1개를 남겨두어 저장소의 maxMessages 윈도우에서 요약이 밀려나지 않게 한다.
+            int maxTurns = maxMessages - 1;
+
+            if (tokens <= maxTokens && turns.size() <= maxTurns) {
+                repository.append(conversationId, 0, messages);
+                return;
+            }
+
+            // 매 턴마다 요약이 돌지 않도록 상한보다 낮은 compactToTokens 까지 한 번에 잘라낸다.
+            int cut = 0;
+            while (cut < turns.size() - 1 && (tokens > compactToTokens || turns.size() - cut > maxTurns)) {
+                tokens -= TokenEstimator.estimate(turns.get(cut));
+                cut++;
+            }
+            // 남는 윈도우가 코치 답변으로 시작하지 않도록 사용자 메시지 경계까지 맞춘다.
+            while (cut < turns.size() - 1 && turns.get(cut).getMessageType() != MessageType.USER) {
+                cut++;
+            }
+
+            evicted = List.copyOf(turns.subList(0, cut));
+            // 무엇을 잘라내고 무엇을 붙였는지 그대로 넘겨, 저장소가 기존 윈도우와 비교해 추측하지 않게 한다.
+            repository.append(conversationId, cut, messages);
+        } finally {
+            lock.unlock();
+        }
+
+        scheduleSummary(conversationId, evicted);
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return repository.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            repository.deleteByConversationId(conversationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scheduleSummary(String conversationId, List<Message> evicted) {
+        if (evicted.isEmpty()) {
+            return;
+        }
+
+        CompletableFuture<Void> job = summaryJobs.compute(conversationId, (id, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .thenRunAsync(() -> applySummary(id, evicted), summaryExecutor)
+                        .exceptionally(e -> {
+                            // 요약에 실패해도 윈도우는 이미 잘려 있으므로 이전 요약만 유지된다.
+                            log.warn("Failed to summarize conversation: {}", id, e);
+                            return null;
+                        }));
+        job.whenComplete((v, e) -> summaryJobs.remove(conversationId, job));
+    }
+
+    private void applySummary(String conversationId, List<Message> evicted) {
+        // LLM 호출은 잠금 밖에서 수행한다. 같은 대화의 요약 작업은 체인으로 직렬화되어 있다.
+        Message previous = ChatMemoryWindowRepository.summaryOf(repository.findByConversationId(conversationId));
+        String summaryText = summarizer.summarize(previous == null ? null : textOf(previous), evicted);
+
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            List<Message> current = repository.findByConversationId(conversationId);
+            if (current.isEmpty()) {
+                // 요약 중에 대화가 삭제됨
+                return;
+            }
+            // 요약만 바꾼다. 그사이 붙은 턴은 그대로 두고, 저장소도 대화 기록을 다시 쓰지 않는다.
+            repository.replaceSummary(conversationId, new SystemMessage(SUMMARY_PREFIX + summaryText));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String conversationId) {
+        return locks[Math.floorMod(conversationId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String textOf(Message summary) {
+        String text = summary.getText();
+        return text.startsWith(SUMMARY_PREFIX) ? text.substring(SUMMARY_PREFIX.length()) : text;
+    }
+}
@@ -0,0 +1,48 @@
+package org.spark.crossfit.ai.memory;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 토크나이저 없이 토큰 수를 빠르게 추정한다.
+ * <p>
+ * OpenAI 토크나이저 기준으로 영문/숫자는 대략 4글자당 1토큰, 한글 등 비 ASCII 문자는 글자당 약 1토큰이다.
+ * 실제보다 약간 크게 잡히도록 올림 처리한다.
+ */
+public final class TokenEstimator {
+
+    // role, 구분자 등 메시지마다 붙는 고정 토큰
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ascii = 0;
+        int others = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                others++;
+            }
+        }
+        return others + (ascii + 3) / 4;
+    }
+
+    public static int estimate(Message message) {
+        return MESSAGE_OVERHEAD_TOKENS + estimate(message.getText());
+    }
+
+    public static int estimate(List<Message> messages) {
+        int tokens = 0;
+        for (Message message : messages) {
+            tokens += estimate(message);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,38 @@
+package org.spark.crossfit.auth;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+/**
+ * 지원하는 JWT 서명 알고리즘과 PEM 키를 읽을 때 쓰는 KeyFactory 알고리즘.
+ * <p>
+ * 서명/검증 비용은 EdDSA < ES256 << RS256 순이다. (RSA 서명은 개인키 연산이 특히 비싸다)
+ */
+public enum JwtAlgorithm {
+    RS256("RSA", Jwts.SIG.RS256),
+    ES256("EC", Jwts.SIG.ES256),
+    EdDSA("Ed25519", Jwts.SIG.EdDSA);
+
+    private final String keyAlgorithm;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    JwtAlgorithm(String keyAlgorithm, SignatureAlgorithm signatureAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public SignatureAlgorithm signatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    /**
+     * JWS 헤더의 alg 값. (EdDSA 는 헤더에도 "EdDSA")
+     */
+    public String headerName() {
+        return signatureAlgorithm.getId();
+    }
+}
@@ -3,12 +3,20 @@ package org.spark.crossfit.auth;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.spark.crossfit.auth.dto.IssuedToken;
+import org.spark.crossfit.auth.dto.IssuedTokenPair;
+import org.spark.crossfit.auth.dto.PendingRefreshToken;
 import org.spark.crossfit.auth.dto.TokenPair;
 import org.spark.crossfit.config.CustomApplicationConfig;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -16,42 +24,108 @@ import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Base64;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * JWT 발급/검증.
+ * <p>
+ * 서명은 현재 키(jwt.key-id)와 설정한 알고리즘으로만 하고, 검증은 헤더의 kid 로 키를 고른다.
+ * 키 교체 시 이전 공개키를 jwt.previous-keys 에 남겨두면 이미 발급된 토큰이 만료될 때까지 계속 검증된다.
+ */
 @Component
 public class JwtTokenProvider {
 
+    private record VerificationKey(JwtAlgorithm algorithm, PublicKey key) {}
+
     private final CustomApplicationConfig config;
+    private final JwtAlgorithm algorithm;
     private final PrivateKey signingKey;  // private
-    private final PublicKey verifyKey;    // public
+    // kid -> 공개키
+    private final Map<String, VerificationKey> verificationKeys;
+    // JwtParser 는 불변이라 스레드 간 공유해도 안전하다. 요청마다 새로 만들지 않는다.
+    private final JwtParser parser;
 
     public JwtTokenProvider(CustomApplicationConfig config) {
         this.config = config;
 
-        this.signingKey = loadRsaPrivateKey(config.getJwt().getPrivateKey());
-        this.verifyKey  = loadRsaPublicKey(config.getJwt().getPublicKey());
+        var jwt = config.getJwt();
+        this.algorithm = jwt.getAlgorithm();
+        this.signingKey = loadPrivateKey(jwt.getPrivateKey(), algorithm);
+
+        Map<String, VerificationKey> keys = new HashMap<>();
+        keys.put(jwt.getKeyId(), new VerificationKey(algorithm, loadPublicKey(jwt.getPublicKey(), algorithm)));
+        for (CustomApplicationConfig.VerificationKey previous : jwt.getPreviousKeys()) {
+            keys.putIfAbsent(previous.getKeyId(),
+                    new VerificationKey(previous.getAlgorithm(), loadPublicKey(previous.getPublicKey(), previous.getAlgorithm())));
+        }
+        this.verificationKeys = Map.copyOf(keys);
+
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return verificationKeyFor(header);
+                    }
+                })
+                .requireIssuer(jwt.getIssuer())
+                .build();
     }
 
-    public TokenPair issueTokenPair(String userId) {
-        Instant now = Instant.now();
+    private Key verificationKeyFor(JwsHeader header) {
+        VerificationKey key = header.getKeyId() == null ? null : verificationKeys.get(header.getKeyId());
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown JWT key id: " + header.getKeyId());
+        }
+        // kid 마다 알고리즘을 고정해 헤더의 alg 를 바꿔 다른 알고리즘으로 검증되게 할 수 없도록 한다.
+        if (!key.algorithm().headerName().equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unexpected JWT algorithm for key id: " + header.getKeyId());
+        }
+        return key.key();
+    }
 
-        String access = issueAccessToken(userId, now);
-        String refresh = issueRefreshToken(userId, now, UUID.randomUUID().toString());
+    /**
+     * 기존 세션(sid)을 이어가는 토큰 쌍을 발급한다. 리프레시 토큰의 jti/exp 는 파싱 없이 함께 돌려준다.
+     */
+    public IssuedTokenPair issueTokenPair(String userId, String sid) {
+        return issueTokenPair(userId, nextRefreshToken(sid));
+    }
+
+    /**
+     * 서명하지 않고 다음 리프레시 토큰의 jti/exp 만 정한다. 저장소에 기록한 뒤 {@link #issueTokenPair(String, PendingRefreshToken)} 로 서명한다.
+     */
+    public PendingRefreshToken nextRefreshToken(String sid) {
+        Instant now = now();
+        return new PendingRefreshToken(UUID.randomUUID().toString(), sid, now, now.plus(Duration.ofDays(config.getJwt().getRefreshTokenTtl())));
+    }
+
+    /**
+     * 이미 저장소에 기록된 리프레시 토큰(jti/exp)을 다시 서명할 때 쓴다. 같은 jti 라서 화이트리스트에서는 같은 토큰이다.
+     */
+    public PendingRefreshToken refreshTokenOf(String sid, String jti, Instant expiresAt) {
+        return new PendingRefreshToken(jti, sid, expiresAt.minus(Duration.ofDays(config.getJwt().getRefreshTokenTtl())), expiresAt);
+    }
 
-        return new TokenPair(
+    public IssuedTokenPair issueTokenPair(String userId, PendingRefreshToken refresh) {
+        String access = issueAccessToken(userId, now());
+        IssuedToken refreshToken = issueRefreshToken(userId, refresh);
+
+        TokenPair tokenPair = new TokenPair(
                 access,
                 Duration.ofSeconds(config.getJwt().getAccessTokenTtl()).toSeconds(),
-                refresh,
+                refreshToken.token(),
                 Duration.ofDays(config.getJwt().getRefreshTokenTtl()).toSeconds()
         );
+        return new IssuedTokenPair(tokenPair, refreshToken);
     }
 
-
     public String issueAccessToken(String userId) {
-        return issueAccessToken(userId, Instant.now());
+        return issueAccessToken(userId, now());
     }
 
     public String issueAccessToken(String userId, Instant now) {
@@ -66,30 +140,35 @@ public class JwtTokenProvider {
                 .expiration(Date.from(exp))
                 .claim("purpose", config.getJwt().getAccessTokenPurpose())
                 .claim("roles", List.of("USER"))
-                .signWith(signingKey, Jwts.SIG.RS256)
+                .signWith(signingKey, algorithm.signatureAlgorithm())
                 .compact();
     }
 
-    public String issueRefreshToken(String userId, String sid) {
-        return issueRefreshToken(userId, Instant.now(), sid);
+    public IssuedToken issueRefreshToken(String userId, String sid) {
+        return issueRefreshToken(userId, nextRefreshToken(sid));
     }
 
-    private String issueRefreshToken(String userId, Instant now, String sid) {
-        Instant exp = now.plus(Duration.ofDays(config.getJwt().getRefreshTokenTtl()));
-        String refreshJti = UUID.randomUUID().toString();
-
-        return Jwts.builder()
+    private IssuedToken issueRefreshToken(String userId, PendingRefreshToken refresh) {
+        String token = Jwts.builder()
                 .header().keyId(config.getJwt().getKeyId()).and()
                 .issuer(config.getJwt().getIssuer())
                 .audience().add(config.getJwt().getAudience()).and()
                 .subject(userId)
-                .id(refreshJti)
-                .issuedAt(Date.from(now))
-                .expiration(Date.from(exp))
+                .id(refresh.jti())
+                .issuedAt(Date.from(refresh.issuedAt()))
+                .expiration(Date.from(refresh.expiresAt()))
                 .claim("purpose", config.getJwt().getRefreshTokenPurpose())
-                .claim("sid", sid)
-                .signWith(signingKey, Jwts.SIG.RS256)
+                .claim("sid", refresh.sid())
+                .signWith(signingKey, algorithm.signatureAlgorithm())
                 .compact();
+        return new IssuedToken(token, refresh.jti(), refresh.sid(), refresh.expiresAt());
+    }
+
+    /**
+     * JWT 의 iat/exp 는 초 단위라서, 돌려주는 만료 시각이 토큰에 들어간 값과 같도록 초 단위로 자른다.
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS);
     }
 
     public Claims validateAndGetClaims(String token) {
@@ -101,11 +180,7 @@ public class JwtTokenProvider {
     }
 
     public Jws<Claims> parseAndValidate(String token) {
-        return Jwts.parser()
-                .verifyWith(verifyKey)
-                .requireIssuer(config.getJwt().getIssuer())
-                .build()
-                .parseSignedClaims(token);
+        return parser.parseSignedClaims(token);
     }
 
     public boolean isRefreshToken(Claims claims) {
@@ -118,7 +193,7 @@ public class JwtTokenProvider {
         return config.getJwt().getAccessTokenPurpose().equals(p);
     }
 
-    private static PrivateKey loadRsaPrivateKey(String pem) {
+    private static PrivateKey loadPrivateKey(String pem, JwtAlgorithm algorithm) {
         try {
             String normalized = normalizePem(pem);
             String b64 = stripPem(normalized,
@@ -126,15 +201,19 @@ public class JwtTokenProvider {
                     "-----END PRIVATE KEY-----");
 
             byte[] der = Base64.getDecoder().decode(b64);
-            KeyFactory kf = KeyFactory.getInstance("RSA");
+            KeyFactory kf = KeyFactory.getInstance(algorithm.keyAlgorithm());
             return kf.generatePrivate(new PKCS8EncodedKeySpec(der));
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to load RSA private key from PEM string", e);
+            throw new IllegalStateException("Failed to load " + algorithm + " private key from PEM string", e);
         }
     }
 
 
     public static PublicKey loadRsaPublicKey(String pem) {
+        return loadPublicKey(pem, JwtAlgorithm.RS256);
+    }
+
+    public static PublicKey loadPublicKey(String pem, JwtAlgorithm algorithm) {
         try {
             String normalized = normalizePem(pem);
             String b64 = stripPem(normalized,
@@ -142,10 +221,10 @@ public class JwtTokenProvider {
                     "-----END PUBLIC KEY-----");
 
             byte[] der = Base64.getDecoder().decode(b64);
-            KeyFactory kf = KeyFactory.getInstance("RSA");
+            KeyFactory kf = KeyFactory.getInstance(algorithm.keyAlgorithm());
             return kf.generatePublic(new X509EncodedKeySpec(der));
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to load RSA public key from PEM string", e);
+            throw new IllegalStateException("Failed to load " + algorithm + " public key from PEM string", e);
         }
     }
 
@@ -0,0 +1,80 @@
+package org.spark.crossfit.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.util.DigestUtil;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 서명 검증을 통과한 액세스 토큰의 인증 정보 캐시.
+ * <p>
+ * 같은 액세스 토큰이 만료 전까지 수백 번 재사용되므로, 토큰 digest 를 키로 subject/권한을 보관해
+ * 두 번째 요청부터는 RSA 서명 검증과 JSON 파싱 없이 해시 조회로 끝낸다.
+ * 각 항목은 토큰의 exp 시각에 만료되므로 캐시가 토큰 수명을 늘리지 않는다.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    public record VerifiedToken(String subject, List<SimpleGrantedAuthority> authorities, Instant expiresAt) {}
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(JwtTokenProvider jwtTokenProvider, CustomApplicationConfig config, MeterRegistry meterRegistry) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getJwt().getVerifiedCacheMaxEntries())
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified");
+    }
+
+    /**
+     * 검증에 실패하면 JwtTokenProvider 와 같은 예외(JwtException 등)를 던진다.
+     */
+    public VerifiedToken verify(String token) {
+        String key = DigestUtil.sha256Hex(token);
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = jwtTokenProvider.validateAndGetClaims(token);
+        List<?> roles = claims.get("roles", List.class);
+        var authorities = roles == null ? List.<SimpleGrantedAuthority>of()
+                : roles.stream().map(r -> new SimpleGrantedAuthority("ROLE_" + r)).toList();
+
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), authorities, claims.getExpiration().toInstant());
+        cache.put(key, verified);
+        return verified;
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            // 이미 만료된 토큰은 저장 즉시 사라진다.
+            return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.spark.crossfit.auth.dto;
+
+import java.time.Instant;
+
+/**
+ * 발급한 토큰과 그 안에 넣은 클레임. 발급 직후 다시 파싱하지 않고 저장소에 기록할 때 쓴다.
+ */
+public record IssuedToken(
+        String token,
+        String jti,
+        String sid,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,7 @@
+package org.spark.crossfit.auth.dto;
+
+public record IssuedTokenPair(
+        TokenPair tokenPair,
+        IssuedToken refreshToken
+) {
+}
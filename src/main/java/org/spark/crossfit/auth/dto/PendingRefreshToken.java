@@ -0,0 +1,14 @@
+package org.spark.crossfit.auth.dto;
+
+import java.time.Instant;
+
+/**
+ * 서명하기 전의 리프레시 토큰 클레임. 회전처럼 저장소에 먼저 기록하고, 기록에 성공한 뒤에만 서명할 때 쓴다.
+ */
+public record PendingRefreshToken(
+        String jti,
+        String sid,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+}
@@ -1,33 +1,30 @@
 package org.spark.crossfit.auth.filter;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.spark.crossfit.auth.JwtTokenProvider;
+import org.spark.crossfit.auth.VerifiedTokenCache;
 import org.spark.crossfit.exception.UnauthorizedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
 
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
-    private final JwtTokenProvider jwtTokenProvider;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final AuthenticationEntryPoint authenticationEntryPoint;
 
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, AuthenticationEntryPoint authenticationEntryPoint) {
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache, AuthenticationEntryPoint authenticationEntryPoint) {
         this.authenticationEntryPoint = authenticationEntryPoint;
-        this.jwtTokenProvider = jwtTokenProvider;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
@@ -48,15 +45,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String token = header.substring("Bearer ".length()).trim();
 
         try {
-            Claims claims = jwtTokenProvider.validateAndGetClaims(token);
+            // 처음 보는 토큰만 서명 검증, 이후에는 캐시 조회
+            var verified = verifiedTokenCache.verify(token);
 
-            String userId = claims.getSubject();
-            List<String> roles = claims.get("roles", List.class);
-
-            var authorities = (roles == null ? List.<SimpleGrantedAuthority>of()
-                    : roles.stream().map(r -> new SimpleGrantedAuthority("ROLE_" + r)).toList());
-
-            var auth = new UsernamePasswordAuthenticationToken(userId, null, authorities);
+            var auth = new UsernamePasswordAuthenticationToken(verified.subject(), null, verified.authorities());
             auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
             SecurityContextHolder.getContext().setAuthentication(auth);
@@ -0,0 +1,649 @@
+package org.spark.crossfit.auth.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+
+/**
+ * 수백만 세션을 담기 위한 원시 배열 기반 RefreshTokenStore.
+ * <p>
+ * sid/jti(UUID)는 각각 long 2개, 만료 시각은 epoch 초로 저장한다. 토큰과 세션은 open addressing(선형 탐사) 테이블의
+ * 슬롯이고, 토큰은 (세션 슬롯 번호, jti) 로 찾는다. 삭제된 슬롯은 tombstone 으로 남겼다가 테이블을 다시 만들 때 정리한다.
+ * 세션의 토큰들과 사용자의 세션들은 슬롯 번호로 잇는 이중 연결 리스트(intrusive chain)라서
+ * 세션/사용자 폐기는 해당 토큰 수에 비례한다.
+ * <p>
+ * 토큰 슬롯 하나는 36바이트(long 3 + int 3)이고 객체를 만들지 않으므로, 레코드/문자열/노드 객체를 쓰는
+ * {@link InMemoryRefreshTokenStore} 보다 토큰당 메모리가 작고 GC 가 훑을 참조도 없다.
+ * 부하율이 약 0.3~0.7 사이를 오가므로 토큰 테이블만 토큰당 약 51~120바이트다.
+ * <p>
+ * 테이블을 다시 만드는 동안(모든 항목 재삽입)은 쓰기 잠금을 잡고 있어 모든 조회/회전이 멈춘다.
+ * 두 배로 늘릴 때 토큰 약 70만 개에서 130 ms, 150만 개에서 270 ms 정도 걸리므로,
+ * 예상 최대 토큰 수에 맞춰 compact-initial-capacity 를 잡아 트래픽 중에 늘어나지 않게 한다.
+ */
+@Slf4j
+public class CompactRefreshTokenStore implements RefreshTokenStore, MeterBinder, DisposableBean {
+
+    // tokens: [jtiHi, jtiLo, meta], meta = (만료 epoch 초 << 2) | 상태. sid 는 tokenSession 이 가리키는 세션 슬롯에 한 번만 둔다.
+    private static final int TOKEN_STRIDE = 3;
+    // sessions: [sidHi, sidLo]
+    private static final int SESSION_STRIDE = 2;
+
+    private static final int EMPTY = 0;
+    private static final int VALID = 1;
+    private static final int REVOKED = 2;
+    private static final int TOMBSTONE = 3;
+
+    // sessionUser 의 특수 값 (0 이상이면 사용자 번호)
+    private static final int FREE_SESSION = -1;
+    private static final int DELETED_SESSION = -2;
+
+    private static final int NONE = -1;
+    private static final double MAX_LOAD = 0.7;
+
+    // 유예 시간 판정용 최근 회전 기록. (sid, 이전 jti) -> 후속 jti
+    private record RotationKey(long sidHi, long sidLo, long jtiHi, long jtiLo) {}
+    private record Rotation(long successorHi, long successorLo, long rotatedAtMillis) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int sweepBatchSize;
+
+    private long[] tokens;
+    private int[] tokenSession;
+    private int[] tokenPrev;
+    private int[] tokenNext;
+    private int tokenMask;
+    private int tokensUsed;     // 사용 중 + tombstone
+    private int validCount;
+    private int revokedCount;
+
+    private long[] sessions;
+    private int[] sessionUser;
+    private int[] sessionHead;
+    private int[] sessionPrev;
+    private int[] sessionNext;
+    private int sessionMask;
+    private int sessionsUsed;   // 사용 중 + tombstone
+    private int liveSessions;
+
+    // userId -> 사용자 번호. 사용자 수는 토큰 수보다 훨씬 적어 일반 맵을 쓴다.
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private int[] userHead = new int[16];
+
+    // 회전 순서(= 시각 순)로 쌓이므로 앞에서부터 유예 시간이 지난 것을 지운다. 유예 시간 안의 회전 수만큼만 남는다.
+    private final LinkedHashMap<RotationKey, Rotation> recentRotations = new LinkedHashMap<>();
+    private final long rotationRetentionMillis;
+
+    private int sweepCursor;
+    private final AtomicLong swept = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    public CompactRefreshTokenStore(CustomApplicationConfig config) {
+        var options = config.getRefreshTokenStore();
+        int initialCapacity = tableSizeFor(options.getCompactInitialCapacity());
+        this.sweepBatchSize = options.getSweepBatchSize();
+        this.rotationRetentionMillis = config.getJwt().getRefreshGracePeriod().toMillis();
+        allocate(initialCapacity, Math.max(16, initialCapacity / 4));
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "refresh-token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = options.getSweepInterval().toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(String userId, String sessionId, String jti, Instant expiresAt) {
+        UUID sid = UUID.fromString(sessionId);
+        UUID tid = UUID.fromString(jti);
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity();
+            int s = sessionSlotOrCreate(sid.getMostSignificantBits(), sid.getLeastSignificantBits(), userOf(userId));
+            int t = tokenSlotOrCreate(s, tid.getMostSignificantBits(), tid.getLeastSignificantBits());
+            setState(t, VALID, expiresAt.getEpochSecond());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String sessionId, String jti) {
+        return hasState(sessionId, jti, VALID);
+    }
+
+    @Override
+    public void revoke(String sessionId, String jti) {
+        UUID sid = parse(sessionId);
+        UUID tid = parse(jti);
+        if (sid == null || tid == null) return;
+
+        lock.writeLock().lock();
+        try {
+            int t = findToken(sid, tid);
+            // 회전 중에는 곧바로 markRevoked 가 이어지므로 세션이 비어도 남겨둔다.
+            if (t != NONE && state(t) == VALID) {
+                removeToken(t);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void markRevoked(String sessionId, String jti, Instant expiresAt) {
+        UUID sid = parse(sessionId);
+        UUID tid = parse(jti);
+        if (sid == null || tid == null) return;
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity();
+            // 이미 폐기된 세션이면 기록할 필요가 없다. (세션이 없으면 exists 에서 거절된다)
+            int s = findSession(sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            if (s == NONE) return;
+            int t = tokenSlotOrCreate(s, tid.getMostSignificantBits(), tid.getLeastSignificantBits());
+            setState(t, REVOKED, expiresAt.getEpochSecond());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String sessionId, String jti) {
+        return hasState(sessionId, jti, REVOKED);
+    }
+
+    @Override
+    public boolean rotate(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                          String newJti, Instant newExpiresAt) {
+        UUID sid = parse(sessionId);
+        UUID oldId = parse(oldJti);
+        UUID newId = UUID.fromString(newJti);
+        if (sid == null || oldId == null) return false;
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity();
+            int s = findSession(sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            if (s == NONE) return false;
+            int t = findToken(s, oldId.getMostSignificantBits(), oldId.getLeastSignificantBits());
+            if (t == NONE || state(t) != VALID || isExpired(t, Instant.now().getEpochSecond())) {
+                return false;
+            }
+            setState(t, REVOKED, oldExpiresAt.getEpochSecond());
+            int nt = tokenSlotOrCreate(s, newId.getMostSignificantBits(), newId.getLeastSignificantBits());
+            setState(nt, VALID, newExpiresAt.getEpochSecond());
+            recordRotation(sid, oldId, newId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Successor rotatedWithin(String sessionId, String jti, Duration grace) {
+        UUID sid = parse(sessionId);
+        UUID tid = parse(jti);
+        if (sid == null || tid == null) return null;
+
+        lock.readLock().lock();
+        try {
+            // 삽입 순서 LinkedHashMap 의 get 은 구조를 바꾸지 않으므로 읽기 잠금으로 충분하다.
+            Rotation rotation = recentRotations.get(new RotationKey(
+                    sid.getMostSignificantBits(), sid.getLeastSignificantBits(), tid.getMostSignificantBits(), tid.getLeastSignificantBits()));
+            if (rotation == null || rotation.rotatedAtMillis() + grace.toMillis() < System.currentTimeMillis()) {
+                return null;
+            }
+            int s = findSession(sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            int t = s == NONE ? NONE : findToken(s, rotation.successorHi(), rotation.successorLo());
+            if (t == NONE || state(t) != VALID || isExpired(t, Instant.now().getEpochSecond())) {
+                return null;
+            }
+            return new Successor(new UUID(rotation.successorHi(), rotation.successorLo()).toString(),
+                    Instant.ofEpochSecond(tokens[t * TOKEN_STRIDE + 2] >>> 2));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void revokeSession(String sessionId) {
+        UUID sid = parse(sessionId);
+        if (sid == null) return;
+
+        lock.writeLock().lock();
+        try {
+            int s = findSession(sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            if (s != NONE) {
+                removeSession(s);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void revokeAllForUser(String userId) {
+        lock.writeLock().lock();
+        try {
+            Integer u = userIndex.get(userId);
+            if (u == null) return;
+            int s = userHead[u];
+            while (s != NONE) {
+                int next = sessionNext[s];
+                removeSession(s);
+                s = next;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 토큰 슬롯을 커서 위치부터 sweepBatchSize 개 훑어 만료된 토큰을 지운다. 한 바퀴를 여러 주기에 나눠 돈다.
+     */
+    int sweep() {
+        long now = Instant.now().getEpochSecond();
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            int capacity = tokenMask + 1;
+            int cursor = sweepCursor & tokenMask;
+            for (int i = 0; i < Math.min(sweepBatchSize, capacity); i++) {
+                int st = state(cursor);
+                if ((st == VALID || st == REVOKED) && isExpired(cursor, now)) {
+                    int s = tokenSession[cursor];
+                    removeToken(cursor);
+                    if (sessionHead[s] == NONE) {
+                        removeSession(s);
+                    }
+                    removed++;
+                }
+                cursor = (cursor + 1) & tokenMask;
+            }
+            sweepCursor = cursor;
+        } catch (RuntimeException e) {
+            // 예외가 밖으로 나가면 스케줄이 취소되므로 로그만 남긴다.
+            log.warn("Failed to sweep expired refresh tokens", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        swept.addAndGet(removed);
+        return removed;
+    }
+
+    /**
+     * 테이블 배열이 차지하는 바이트 수 (사용자 맵 제외).
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long tokenCapacity = tokenMask + 1L;
+            long sessionCapacity = sessionMask + 1L;
+            return tokenCapacity * (TOKEN_STRIDE * Long.BYTES + 3 * Integer.BYTES)
+                    + sessionCapacity * (SESSION_STRIDE * Long.BYTES + 4 * Integer.BYTES)
+                    + (long) userHead.length * Integer.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean hasState(String sessionId, String jti, int expected) {
+        UUID sid = parse(sessionId);
+        UUID tid = parse(jti);
+        if (sid == null || tid == null) return false;
+
+        lock.readLock().lock();
+        try {
+            int t = findToken(sid, tid);
+            // 만료된 슬롯은 조회에서 제외만 하고, 실제 삭제는 sweeper 가 한다. (읽기 잠금에서 구조를 바꾸지 않음)
+            return t != NONE && state(t) == expected && !isExpired(t, Instant.now().getEpochSecond());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void recordRotation(UUID sid, UUID oldId, UUID newId) {
+        long now = System.currentTimeMillis();
+        Iterator<Rotation> oldest = recentRotations.values().iterator();
+        while (oldest.hasNext() && oldest.next().rotatedAtMillis() + rotationRetentionMillis < now) {
+            oldest.remove();
+        }
+        if (rotationRetentionMillis > 0) {
+            recentRotations.put(
+                    new RotationKey(sid.getMostSignificantBits(), sid.getLeastSignificantBits(), oldId.getMostSignificantBits(), oldId.getLeastSignificantBits()),
+                    new Rotation(newId.getMostSignificantBits(), newId.getLeastSignificantBits(), now));
+        }
+    }
+
+    // ---- 토큰 테이블 (잠금을 잡은 상태에서만 호출) ----
+
+    private int state(int t) {
+        return (int) (tokens[t * TOKEN_STRIDE + 2] & 0b11);
+    }
+
+    private boolean isExpired(int t, long nowEpochSecond) {
+        return (tokens[t * TOKEN_STRIDE + 2] >>> 2) < nowEpochSecond;
+    }
+
+    private void setState(int t, int state, long expiresEpochSecond) {
+        int previous = state(t);
+        if (previous == VALID) validCount--;
+        if (previous == REVOKED) revokedCount--;
+        if (state == VALID) validCount++;
+        if (state == REVOKED) revokedCount++;
+        tokens[t * TOKEN_STRIDE + 2] = (expiresEpochSecond << 2) | state;
+    }
+
+    private int findToken(UUID sid, UUID jti) {
+        int s = findSession(sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+        return s == NONE ? NONE : findToken(s, jti.getMostSignificantBits(), jti.getLeastSignificantBits());
+    }
+
+    private int findToken(int s, long jtiHi, long jtiLo) {
+        int i = tokenHash(s, jtiHi, jtiLo) & tokenMask;
+        while (true) {
+            int st = state(i);
+            if (st == EMPTY) return NONE;
+            if (st != TOMBSTONE && tokenMatches(i, s, jtiHi, jtiLo)) return i;
+            i = (i + 1) & tokenMask;
+        }
+    }
+
+    /**
+     * 세션 s 에 속한 토큰 슬롯을 찾거나 새로 만든다. 새 슬롯은 EMPTY 상태라 다른 키의 탐사를 끊으므로
+     * 호출한 쪽에서 곧바로 setState 를 호출해야 한다.
+     */
+    private int tokenSlotOrCreate(int s, long jtiHi, long jtiLo) {
+        int i = tokenHash(s, jtiHi, jtiLo) & tokenMask;
+        int firstTombstone = NONE;
+        while (true) {
+            int st = state(i);
+            if (st == EMPTY) break;
+            if (st == TOMBSTONE) {
+                if (firstTombstone == NONE) firstTombstone = i;
+            } else if (tokenMatches(i, s, jtiHi, jtiLo)) {
+                return i;
+            }
+            i = (i + 1) & tokenMask;
+        }
+
+        int t = firstTombstone != NONE ? firstTombstone : i;
+        if (t == i) tokensUsed++;
+        int base = t * TOKEN_STRIDE;
+        tokens[base] = jtiHi;
+        tokens[base + 1] = jtiLo;
+        tokens[base + 2] = EMPTY;
+
+        // 세션의 토큰 체인 맨 앞에 연결
+        tokenSession[t] = s;
+        tokenPrev[t] = NONE;
+        tokenNext[t] = sessionHead[s];
+        if (sessionHead[s] != NONE) tokenPrev[sessionHead[s]] = t;
+        sessionHead[s] = t;
+        return t;
+    }
+
+    private void removeToken(int t) {
+        setState(t, TOMBSTONE, 0);
+        int s = tokenSession[t];
+        int prev = tokenPrev[t];
+        int next = tokenNext[t];
+        if (prev == NONE) sessionHead[s] = next; else tokenNext[prev] = next;
+        if (next != NONE) tokenPrev[next] = prev;
+        tokenSession[t] = NONE;
+    }
+
+    private boolean tokenMatches(int t, int s, long jtiHi, long jtiLo) {
+        int base = t * TOKEN_STRIDE;
+        return tokenSession[t] == s && tokens[base] == jtiHi && tokens[base + 1] == jtiLo;
+    }
+
+    // ---- 세션 테이블 ----
+
+    private int findSession(long sidHi, long sidLo) {
+        int i = mix(sidHi, sidLo) & sessionMask;
+        while (true) {
+            int user = sessionUser[i];
+            if (user == FREE_SESSION) return NONE;
+            if (user != DELETED_SESSION && sessions[i * SESSION_STRIDE] == sidHi && sessions[i * SESSION_STRIDE + 1] == sidLo) {
+                return i;
+            }
+            i = (i + 1) & sessionMask;
+        }
+    }
+
+    private int sessionSlotOrCreate(long sidHi, long sidLo, int user) {
+        int i = mix(sidHi, sidLo) & sessionMask;
+        int firstDeleted = NONE;
+        while (true) {
+            int u = sessionUser[i];
+            if (u == FREE_SESSION) break;
+            if (u == DELETED_SESSION) {
+                if (firstDeleted == NONE) firstDeleted = i;
+            } else if (sessions[i * SESSION_STRIDE] == sidHi && sessions[i * SESSION_STRIDE + 1] == sidLo) {
+                return i;
+            }
+            i = (i + 1) & sessionMask;
+        }
+
+        int s = firstDeleted != NONE ? firstDeleted : i;
+        if (s == i) sessionsUsed++;
+        liveSessions++;
+        sessions[s * SESSION_STRIDE] = sidHi;
+        sessions[s * SESSION_STRIDE + 1] = sidLo;
+        sessionUser[s] = user;
+        sessionHead[s] = NONE;
+
+        // 사용자의 세션 체인 맨 앞에 연결
+        sessionPrev[s] = NONE;
+        sessionNext[s] = userHead[user];
+        if (userHead[user] != NONE) sessionPrev[userHead[user]] = s;
+        userHead[user] = s;
+        return s;
+    }
+
+    private void removeSession(int s) {
+        int t = sessionHead[s];
+        while (t != NONE) {
+            int next = tokenNext[t];
+            setState(t, TOMBSTONE, 0);
+            tokenSession[t] = NONE;
+            t = next;
+        }
+        sessionHead[s] = NONE;
+
+        int user = sessionUser[s];
+        int prev = sessionPrev[s];
+        int next = sessionNext[s];
+        if (prev == NONE) userHead[user] = next; else sessionNext[prev] = next;
+        if (next != NONE) sessionPrev[next] = prev;
+
+        sessionUser[s] = DELETED_SESSION;
+        liveSessions--;
+    }
+
+    private int userOf(String userId) {
+        Integer existing = userIndex.get(userId);
+        if (existing != null) return existing;
+
+        int user = userIndex.size();
+        userIndex.put(userId, user);
+        if (user == userHead.length) {
+            int oldLength = userHead.length;
+            userHead = Arrays.copyOf(userHead, oldLength * 2);
+            Arrays.fill(userHead, oldLength, userHead.length, NONE);
+        }
+        return user;
+    }
+
+    // ---- 용량 관리 ----
+
+    /**
+     * 쓰기 한 번에 토큰 슬롯 최대 2개, 세션 슬롯 1개를 쓰므로 그만큼 여유가 없으면 테이블을 다시 만든다.
+     * tombstone 도 탐사 길이를 늘리므로 사용량에 포함하고, 다시 만들 때 모두 정리된다.
+     */
+    private void ensureCapacity() {
+        boolean tokensFull = tokensUsed + 2 > (tokenMask + 1) * MAX_LOAD;
+        boolean sessionsFull = sessionsUsed + 1 > (sessionMask + 1) * MAX_LOAD;
+        if (tokensFull || sessionsFull) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        long[] oldTokens = tokens;
+        int[] oldTokenSession = tokenSession;
+        int oldTokenCapacity = tokenMask + 1;
+        long[] oldSessions = sessions;
+        int[] oldSessionUser = sessionUser;
+        int oldSessionCapacity = sessionMask + 1;
+
+        // tombstone 만 정리해도 충분하면 크기를 유지하고, 살아 있는 항목만으로 여유가 모자랄 때만 두 배로 늘린다.
+        int tokenCapacity = grow(oldTokenCapacity, validCount + revokedCount + 2);
+        int sessionCapacity = grow(oldSessionCapacity, liveSessions + 1);
+        allocate(tokenCapacity, sessionCapacity);
+        Arrays.fill(userHead, NONE);
+
+        int[] sessionRemap = new int[oldSessionCapacity];
+        for (int s = 0; s < oldSessionCapacity; s++) {
+            int user = oldSessionUser[s];
+            sessionRemap[s] = user >= 0
+                    ? sessionSlotOrCreate(oldSessions[s * SESSION_STRIDE], oldSessions[s * SESSION_STRIDE + 1], user)
+                    : NONE;
+        }
+        for (int t = 0; t < oldTokenCapacity; t++) {
+            long meta = oldTokens[t * TOKEN_STRIDE + 2];
+            int st = (int) (meta & 0b11);
+            if (st != VALID && st != REVOKED) continue;
+
+            int s = sessionRemap[oldTokenSession[t]];
+            int nt = tokenSlotOrCreate(s, oldTokens[t * TOKEN_STRIDE], oldTokens[t * TOKEN_STRIDE + 1]);
+            setState(nt, st, meta >>> 2);
+        }
+        sweepCursor = 0;
+    }
+
+    private void allocate(int tokenCapacity, int sessionCapacity) {
+        tokens = new long[tokenCapacity * TOKEN_STRIDE];
+        tokenSession = new int[tokenCapacity];
+        tokenPrev = new int[tokenCapacity];
+        tokenNext = new int[tokenCapacity];
+        tokenMask = tokenCapacity - 1;
+        tokensUsed = 0;
+        validCount = 0;
+        revokedCount = 0;
+
+        sessions = new long[sessionCapacity * SESSION_STRIDE];
+        sessionUser = new int[sessionCapacity];
+        Arrays.fill(sessionUser, FREE_SESSION);
+        sessionHead = new int[sessionCapacity];
+        sessionPrev = new int[sessionCapacity];
+        sessionNext = new int[sessionCapacity];
+        sessionMask = sessionCapacity - 1;
+        sessionsUsed = 0;
+        liveSessions = 0;
+        Arrays.fill(userHead, NONE);
+    }
+
+    /**
+     * live 개를 담고도 최대 부하율까지 테이블의 1/8 이상이 남는 크기. 여유 없이 같은 크기로 다시 만들면
+     * tombstone 몇 개만 정리되고 곧바로 다시 재구성하게 된다.
+     */
+    private static int grow(int capacity, int live) {
+        int size = capacity;
+        while (live + size / 8 > size * MAX_LOAD) {
+            size <<= 1;
+            if (size <= 0) {
+                throw new IllegalStateException("Refresh token table is too large");
+            }
+        }
+        return size;
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(Math.max(16, n - 1)) << 1;
+        if (size <= 0) {
+            throw new IllegalStateException("Refresh token table is too large");
+        }
+        return size;
+    }
+
+    private static int tokenHash(int s, long jtiHi, long jtiLo) {
+        return mix(jtiHi, jtiLo ^ s);
+    }
+
+    // murmur3 fmix64
+    private static int mix(long a, long b) {
+        long h = a ^ Long.rotateLeft(b, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static UUID parse(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            // 이 저장소에 들어오는 sid/jti 는 모두 UUID 라서, 아니면 저장된 적 없는 값이다.
+            return null;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("refresh.token.valid", this, store -> store.read(() -> store.validCount))
+                .description("Live refresh tokens")
+                .register(registry);
+        Gauge.builder("refresh.token.revoked", this, store -> store.read(() -> store.revokedCount))
+                .description("Rotated refresh tokens kept for replay detection")
+                .register(registry);
+        Gauge.builder("refresh.token.sessions", this, store -> store.read(() -> store.liveSessions))
+                .register(registry);
+        Gauge.builder("refresh.token.compact.bytes", this, CompactRefreshTokenStore::estimatedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("refresh.token.swept", swept, AtomicLong::get)
+                .description("Expired refresh tokens removed by the background sweeper")
+                .register(registry);
+    }
+
+    private int read(IntSupplier counter) {
+        lock.readLock().lock();
+        try {
+            return counter.getAsInt();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+}
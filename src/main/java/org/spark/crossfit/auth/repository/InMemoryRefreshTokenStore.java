@@ -1,38 +1,112 @@
 package org.spark.crossfit.auth.repository;
 
-import org.springframework.stereotype.Component;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Component
-public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+/**
+ * 리프레시 토큰 화이트리스트/폐기 목록.
+ * <p>
+ * 만료된 토큰은 조회될 때 지우는 것과 별개로, 만료 시각 순 큐를 따라 백그라운드에서 주기적으로 정리한다.
+ * 한 번에 정리하는 개수를 제한해 대량 만료 시점에도 정리 스레드가 맵을 오래 붙잡지 않는다.
+ */
+@Slf4j
+public class InMemoryRefreshTokenStore implements RefreshTokenStore, MeterBinder, DisposableBean {
+
+    /**
+     * 스냅샷용 순회 콜백. successor 는 회전으로 폐기된 토큰에만 있고, revokedAt 은 폐기 토큰에만 있다.
+     */
+    @FunctionalInterface
+    public interface TokenVisitor {
+        void visit(String userId, String sessionId, String jti, Instant expiresAt, boolean revoked,
+                   @Nullable String successor, @Nullable Instant revokedAt) throws IOException;
+    }
 
     private record TokenKey(String sessionId, String jti) {}
     private record TokenValue(String userId, Instant expiresAt) {}
+    // successor 는 회전으로 폐기됐을 때 그때 발급한 jti
+    private record Revoked(Instant expiresAt, @Nullable String successor, Instant revokedAt) {}
+    private record Expiring(Instant expiresAt, TokenKey key) {}
+
+    /**
+     * 세션 소유자와 이 세션에 속한 jti (valid/revoked 어느 쪽이든 남아 있는 것).
+     * jtis 는 sessions.compute 안에서만 읽고 쓰므로 세션 단위로 직렬화된다.
+     */
+    private static final class Session {
+        private final String userId;
+        private final Set<String> jtis = new HashSet<>();
+
+        private Session(String userId) {
+            this.userId = userId;
+        }
+    }
 
     // 유효 토큰(화이트리스트)
     private final ConcurrentMap<TokenKey, TokenValue> valid = new ConcurrentHashMap<>();
 
     // 폐기 토큰(재사용 탐지용)
-    private final ConcurrentMap<TokenKey, Instant> revoked = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TokenKey, Revoked> revoked = new ConcurrentHashMap<>();
+
+    // sessionId -> 세션 (소유자 + 토큰 키 인덱스). 세션/사용자 폐기가 전체 맵을 훑지 않게 한다.
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
 
     // userId -> sessionIds
     private final ConcurrentMap<String, Set<String>> userSessions = new ConcurrentHashMap<>();
 
-    // sessionId별 동기화 (회전 경쟁 방지)
-    private final ConcurrentMap<String, Object> sessionLocks = new ConcurrentHashMap<>();
+    // 만료 시각 순 정리 대상. 회전으로 먼저 지워진 토큰도 남아 있다가 만료 시각에 빠진다.
+    private final PriorityBlockingQueue<Expiring> expiryQueue =
+            new PriorityBlockingQueue<>(1024, Comparator.comparing(Expiring::expiresAt));
+    private final ScheduledExecutorService sweeper;
+    private final int sweepBatchSize;
+    private final AtomicLong swept = new AtomicLong();
 
+    public InMemoryRefreshTokenStore(CustomApplicationConfig config) {
+        var options = config.getRefreshTokenStore();
+        this.sweepBatchSize = options.getSweepBatchSize();
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "refresh-token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = options.getSweepInterval().toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
 
     @Override
     public void save(String userId, String sessionId, String jti, Instant expiresAt) {
-        TokenKey key = new TokenKey(sessionId, jti);
-        valid.put(key, new TokenValue(userId, expiresAt));
-
-        userSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
-        sessionLocks.computeIfAbsent(sessionId, k -> new Object());
+        sessions.compute(sessionId, (sid, session) -> {
+            Session s = session;
+            if (s == null) {
+                // 사용자 인덱스도 같은 compute 안에서 갱신해야 동시에 도는 revokeSession 이 sid 를 남기지 않는다.
+                s = new Session(userId);
+                userSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sid);
+            }
+            s.jtis.add(jti);
+            valid.put(new TokenKey(sid, jti), new TokenValue(userId, expiresAt));
+            return s;
+        });
+        expiryQueue.offer(new Expiring(expiresAt, new TokenKey(sessionId, jti)));
     }
 
     @Override
@@ -41,7 +115,7 @@ public class InMemoryRefreshTokenStore implements RefreshTokenStore {
         if (v == null) return false;
         if (v.expiresAt().isBefore(Instant.now())) {
             // 만료된 건 즉시 제거
-            valid.remove(new TokenKey(sessionId, jti));
+            expire(sessionId, jti, true, false);
             return false;
         }
         return true;
@@ -50,43 +124,233 @@ public class InMemoryRefreshTokenStore implements RefreshTokenStore {
 
     @Override
     public void revoke(String sessionId, String jti) {
-        valid.remove(new TokenKey(sessionId, jti));
+        // 회전 중에는 곧바로 markRevoked 가 이어지므로 세션이 비어도 남겨둔다.
+        TokenKey key = new TokenKey(sessionId, jti);
+        sessions.computeIfPresent(sessionId, (sid, s) -> {
+            valid.remove(key);
+            if (!revoked.containsKey(key)) {
+                s.jtis.remove(jti);
+            }
+            return s;
+        });
     }
 
     @Override
     public void markRevoked(String sessionId, String jti, Instant expiresAt) {
-        revoked.put(new TokenKey(sessionId, jti), expiresAt);
+        // 이미 폐기된 세션이면 기록할 필요가 없다. (세션이 없으면 exists 에서 거절된다)
+        Session session = sessions.computeIfPresent(sessionId, (sid, s) -> {
+            s.jtis.add(jti);
+            revoked.put(new TokenKey(sid, jti), new Revoked(expiresAt, null, Instant.now()));
+            return s;
+        });
+        if (session != null) {
+            expiryQueue.offer(new Expiring(expiresAt, new TokenKey(sessionId, jti)));
+        }
+    }
+
+    @Override
+    public boolean rotate(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                          String newJti, Instant newExpiresAt) {
+        // 세션 단위로 직렬화되므로 같은 토큰으로 동시에 회전하면 하나만 성공한다.
+        TokenKey oldKey = new TokenKey(sessionId, oldJti);
+        boolean[] rotated = new boolean[1];
+        sessions.computeIfPresent(sessionId, (sid, s) -> {
+            TokenValue current = valid.get(oldKey);
+            if (current == null || current.expiresAt().isBefore(Instant.now())) {
+                return s;
+            }
+            valid.remove(oldKey);
+            revoked.put(oldKey, new Revoked(oldExpiresAt, newJti, Instant.now()));
+            s.jtis.add(newJti);
+            valid.put(new TokenKey(sid, newJti), new TokenValue(userId, newExpiresAt));
+            rotated[0] = true;
+            return s;
+        });
+
+        if (rotated[0]) {
+            expiryQueue.offer(new Expiring(oldExpiresAt, oldKey));
+            expiryQueue.offer(new Expiring(newExpiresAt, new TokenKey(sessionId, newJti)));
+        }
+        return rotated[0];
+    }
+
+    /**
+     * 저널 복원용. 이미 성공한 회전을 지금 시각으로 다시 판정하지 않고, 회전 시각과 후속 토큰까지 그대로 옮긴다.
+     */
+    public void restoreRotation(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                                String newJti, Instant newExpiresAt, Instant rotatedAt) {
+        save(userId, sessionId, newJti, newExpiresAt);
+        restoreRevoked(sessionId, oldJti, oldExpiresAt, newJti, rotatedAt);
+    }
+
+    /**
+     * 스냅샷 복원용. 폐기 시각과 후속 토큰을 그대로 옮긴다. (후속 토큰은 먼저 복원돼 있어야 한다)
+     */
+    public void restoreRevoked(String sessionId, String jti, Instant expiresAt,
+                               @Nullable String successor, Instant revokedAt) {
+        TokenKey key = new TokenKey(sessionId, jti);
+        Session session = sessions.computeIfPresent(sessionId, (sid, s) -> {
+            valid.remove(key);
+            s.jtis.add(jti);
+            revoked.put(key, new Revoked(expiresAt, successor, revokedAt));
+            return s;
+        });
+        if (session != null) {
+            expiryQueue.offer(new Expiring(expiresAt, key));
+        }
     }
 
     @Override
     public boolean isRevoked(String sessionId, String jti) {
-        Instant exp = revoked.get(new TokenKey(sessionId, jti));
-        if (exp == null) return false;
-        if (exp.isBefore(Instant.now())) {
-            revoked.remove(new TokenKey(sessionId, jti));
+        Revoked r = revoked.get(new TokenKey(sessionId, jti));
+        if (r == null) return false;
+        if (r.expiresAt().isBefore(Instant.now())) {
+            expire(sessionId, jti, false, true);
             return false;
         }
         return true;
     }
 
     @Override
-    public void revokeSession(String sessionId) {
-        // sessionId에 속한 모든 valid/revoked 제거
-        valid.keySet().removeIf(k -> k.sessionId().equals(sessionId));
-        revoked.keySet().removeIf(k -> k.sessionId().equals(sessionId));
+    public Successor rotatedWithin(String sessionId, String jti, Duration grace) {
+        Revoked r = revoked.get(new TokenKey(sessionId, jti));
+        Instant now = Instant.now();
+        if (r == null || r.successor() == null || r.revokedAt().plus(grace).isBefore(now)) {
+            return null;
+        }
+        TokenValue next = valid.get(new TokenKey(sessionId, r.successor()));
+        if (next == null || next.expiresAt().isBefore(now)) {
+            return null;
+        }
+        return new Successor(r.successor(), next.expiresAt());
+    }
 
-        // userSessions에서 sessionId 제거
-        userSessions.forEach((userId, sessions) -> sessions.remove(sessionId));
-        sessionLocks.remove(sessionId);
+    @Override
+    public void revokeSession(String sessionId) {
+        // 세션 인덱스에 있는 토큰만 지운다. (세션 토큰 수에 비례)
+        sessions.computeIfPresent(sessionId, (sid, s) -> {
+            for (String jti : s.jtis) {
+                TokenKey key = new TokenKey(sid, jti);
+                valid.remove(key);
+                revoked.remove(key);
+            }
+            detachFromUser(s.userId, sid);
+            return null;
+        });
     }
 
     @Override
     public void revokeAllForUser(String userId) {
-        Set<String> sessions = userSessions.getOrDefault(userId, Set.of());
-        for (String sid : sessions) {
+        Set<String> sessionIds = userSessions.remove(userId);
+        if (sessionIds == null) {
+            return;
+        }
+        for (String sid : sessionIds) {
             revokeSession(sid);
         }
-        userSessions.remove(userId);
+    }
+
+    /**
+     * 만료된 토큰 하나를 valid/revoked 에서 지우고, 어느 쪽에도 남지 않으면 세션 인덱스에서도 뺀다.
+     * 세션에 토큰이 하나도 남지 않으면 세션도 정리한다.
+     */
+    private boolean expire(String sessionId, String jti, boolean fromValid, boolean fromRevoked) {
+        TokenKey key = new TokenKey(sessionId, jti);
+        boolean[] removed = new boolean[1];
+        sessions.computeIfPresent(sessionId, (sid, s) -> {
+            if (fromValid) removed[0] |= valid.remove(key) != null;
+            if (fromRevoked) removed[0] |= revoked.remove(key) != null;
+            if (!valid.containsKey(key) && !revoked.containsKey(key)) {
+                s.jtis.remove(jti);
+            }
+            if (s.jtis.isEmpty()) {
+                detachFromUser(s.userId, sid);
+                return null;
+            }
+            return s;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 만료 시각이 지난 토큰을 최대 sweepBatchSize 개 정리한다. 남은 건 다음 주기에 이어서 처리한다.
+     */
+    int sweep() {
+        Instant now = Instant.now();
+        int processed = 0;
+        int removed = 0;
+        try {
+            while (processed < sweepBatchSize) {
+                Expiring head = expiryQueue.peek();
+                if (head == null || head.expiresAt().isAfter(now)) {
+                    break;
+                }
+                // 큐에서 꺼내는 쪽은 이 스레드뿐이라 poll 결과도 이미 만료된 항목이다.
+                Expiring expired = expiryQueue.poll();
+                processed++;
+                if (expire(expired.key().sessionId(), expired.key().jti(), true, true)) {
+                    removed++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 예외가 밖으로 나가면 스케줄이 취소되므로 로그만 남긴다.
+            log.warn("Failed to sweep expired refresh tokens", e);
+        }
+        swept.addAndGet(removed);
+        return removed;
+    }
+
+    /**
+     * 유효 토큰을 모두 넘긴 뒤 폐기 토큰을 넘긴다. (폐기 토큰은 세션이 있어야 복원되므로)
+     * 순회 중 바뀌는 항목은 반영될 수도, 안 될 수도 있다.
+     */
+    public void forEach(TokenVisitor visitor) throws IOException {
+        for (Map.Entry<TokenKey, TokenValue> e : valid.entrySet()) {
+            TokenKey key = e.getKey();
+            visitor.visit(e.getValue().userId(), key.sessionId(), key.jti(), e.getValue().expiresAt(), false,
+                    null, null);
+        }
+        for (Map.Entry<TokenKey, Revoked> e : revoked.entrySet()) {
+            TokenKey key = e.getKey();
+            Session session = sessions.get(key.sessionId());
+            if (session != null) {
+                Revoked r = e.getValue();
+                visitor.visit(session.userId, key.sessionId(), key.jti(), r.expiresAt(), true,
+                        r.successor(), r.revokedAt());
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("refresh.token.valid", valid, Map::size)
+                .description("Live refresh tokens")
+                .register(registry);
+        Gauge.builder("refresh.token.revoked", revoked, Map::size)
+                .description("Rotated refresh tokens kept for replay detection")
+                .register(registry);
+        Gauge.builder("refresh.token.sessions", sessions, Map::size)
+                .register(registry);
+        Gauge.builder("refresh.token.expiry.queue", expiryQueue, PriorityBlockingQueue::size)
+                .register(registry);
+        FunctionCounter.builder("refresh.token.swept", swept, AtomicLong::get)
+                .description("Expired refresh tokens removed by the background sweeper")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * sessions.compute 안에서만 부른다. 잠금 순서는 항상 sessions -> userSessions 이다.
+     */
+    private void detachFromUser(String userId, String sessionId) {
+        userSessions.computeIfPresent(userId, (uid, sids) -> {
+            sids.remove(sessionId);
+            return sids.isEmpty() ? null : sids;
+        });
     }
 
 
@@ -0,0 +1,193 @@
+package org.spark.crossfit.auth.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PostgreSQL 에 저장하는 RefreshTokenStore. 여러 인스턴스가 같은 세션을 공유한다.
+ * <p>
+ * revoked_at 이 null 이면 유효 토큰, 값이 있으면 재사용 탐지용 폐기 토큰이다.
+ * 회전은 UPDATE ... RETURNING 과 INSERT 를 하나의 문장(CTE)으로 묶어 한 번의 왕복으로 원자적으로 처리한다.
+ * <p>
+ * 다른 인스턴스의 변경을 알 방법이 없으므로 로컬 캐시 없이 모든 판정을 DB 에서 한다.
+ * 만료된 행은 백그라운드에서 일정 개수씩 나눠 지운다.
+ */
+@Slf4j
+public class JdbcRefreshTokenStore implements RefreshTokenStore, MeterBinder, DisposableBean {
+
+    private static final String SAVE_SQL = """
+            INSERT INTO refresh_token (session_id, jti, user_id, expires_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (session_id, jti)
+            DO UPDATE SET user_id = EXCLUDED.user_id, expires_at = EXCLUDED.expires_at, revoked_at = NULL, successor_jti = NULL
+            """;
+
+    private static final String EXISTS_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM refresh_token
+                WHERE session_id = ? AND jti = ? AND revoked_at IS NULL AND expires_at > now()
+            )
+            """;
+
+    private static final String IS_REVOKED_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM refresh_token
+                WHERE session_id = ? AND jti = ? AND revoked_at IS NOT NULL AND expires_at > now()
+            )
+            """;
+
+    private static final String REVOKE_SQL =
+            "UPDATE refresh_token SET revoked_at = now() WHERE session_id = ? AND jti = ? AND revoked_at IS NULL";
+
+    private static final String MARK_REVOKED_SQL =
+            "UPDATE refresh_token SET revoked_at = COALESCE(revoked_at, now()), expires_at = ? WHERE session_id = ? AND jti = ?";
+
+    // 기존 jti 가 아직 유효할 때만 폐기하고, 폐기된 행이 있을 때만 새 jti 를 넣는다.
+    // 같은 토큰으로 동시에 갱신하면 행 잠금 때문에 하나만 1 을 돌려받는다.
+    private static final String ROTATE_SQL = """
+            WITH rotated AS (
+                UPDATE refresh_token SET revoked_at = now(), expires_at = ?, successor_jti = ?
+                WHERE session_id = ? AND jti = ? AND revoked_at IS NULL AND expires_at > now()
+                RETURNING session_id
+            )
+            INSERT INTO refresh_token (session_id, jti, user_id, expires_at)
+            SELECT session_id, ?, ?, ? FROM rotated
+            """;
+
+    // 회전된 지 grace 이내이고 후속 토큰이 아직 유효한 경우만
+    private static final String ROTATED_WITHIN_SQL = """
+            SELECT s.jti, s.expires_at
+            FROM refresh_token r
+            JOIN refresh_token s ON s.session_id = r.session_id AND s.jti = r.successor_jti
+            WHERE r.session_id = ? AND r.jti = ? AND r.revoked_at > now() - make_interval(secs => ?)
+              AND s.revoked_at IS NULL AND s.expires_at > now()
+            """;
+
+    private static final String REVOKE_SESSION_SQL = "DELETE FROM refresh_token WHERE session_id = ?";
+
+    private static final String REVOKE_USER_SQL = "DELETE FROM refresh_token WHERE user_id = ?";
+
+    // 한 번에 지우는 행 수를 제한해 긴 잠금/대형 트랜잭션을 피한다.
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM refresh_token WHERE ctid IN (
+                SELECT ctid FROM refresh_token WHERE expires_at <= now() LIMIT ?
+            )
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int sweepBatchSize;
+
+    private final ScheduledExecutorService sweeper;
+    private final AtomicLong swept = new AtomicLong();
+
+    public JdbcRefreshTokenStore(JdbcTemplate jdbcTemplate, CustomApplicationConfig.RefreshTokenStoreOptions options) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sweepBatchSize = options.getSweepBatchSize();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "refresh-token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = options.getSweepInterval().toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(String userId, String sessionId, String jti, Instant expiresAt) {
+        jdbcTemplate.update(SAVE_SQL, sessionId, jti, userId, Timestamp.from(expiresAt));
+    }
+
+    @Override
+    public boolean exists(String sessionId, String jti) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, sessionId, jti));
+    }
+
+    @Override
+    public void revoke(String sessionId, String jti) {
+        jdbcTemplate.update(REVOKE_SQL, sessionId, jti);
+    }
+
+    @Override
+    public void markRevoked(String sessionId, String jti, Instant expiresAt) {
+        jdbcTemplate.update(MARK_REVOKED_SQL, Timestamp.from(expiresAt), sessionId, jti);
+    }
+
+    @Override
+    public boolean isRevoked(String sessionId, String jti) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_REVOKED_SQL, Boolean.class, sessionId, jti));
+    }
+
+    @Override
+    public boolean rotate(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                          String newJti, Instant newExpiresAt) {
+        int inserted = jdbcTemplate.update(ROTATE_SQL,
+                Timestamp.from(oldExpiresAt), newJti, sessionId, oldJti,
+                newJti, userId, Timestamp.from(newExpiresAt));
+        return inserted == 1;
+    }
+
+    @Override
+    public Successor rotatedWithin(String sessionId, String jti, Duration grace) {
+        List<Successor> successors = jdbcTemplate.query(ROTATED_WITHIN_SQL,
+                (rs, rowNum) -> new Successor(rs.getString(1), rs.getTimestamp(2).toInstant()),
+                sessionId, jti, grace.toMillis() / 1000.0);
+        return successors.isEmpty() ? null : successors.get(0);
+    }
+
+    @Override
+    public void revokeSession(String sessionId) {
+        jdbcTemplate.update(REVOKE_SESSION_SQL, sessionId);
+    }
+
+    @Override
+    public void revokeAllForUser(String userId) {
+        jdbcTemplate.update(REVOKE_USER_SQL, userId);
+    }
+
+    /**
+     * 만료된 행을 sweepBatchSize 개씩 지운다. 한 주기에 최대 10 배치까지만 처리하고 나머지는 다음 주기로 넘긴다.
+     */
+    int sweep() {
+        int removed = 0;
+        try {
+            for (int batch = 0; batch < 10; batch++) {
+                int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, sweepBatchSize);
+                removed += deleted;
+                if (deleted < sweepBatchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 예외가 밖으로 나가면 스케줄이 취소되므로 로그만 남긴다.
+            log.warn("Failed to delete expired refresh tokens", e);
+        }
+        swept.addAndGet(removed);
+        return removed;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("refresh.token.swept", swept, AtomicLong::get)
+                .description("Expired refresh tokens removed by the background sweeper")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+}
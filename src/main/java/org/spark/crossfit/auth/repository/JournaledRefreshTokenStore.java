@@ -0,0 +1,356 @@
+package org.spark.crossfit.auth.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.snapshot.MappedJournal;
+import org.springframework.lang.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.spark.crossfit.snapshot.MappedJournal.readString;
+import static org.spark.crossfit.snapshot.MappedJournal.writeString;
+
+/**
+ * 재시작해도 로그인이 유지되도록 {@link InMemoryRefreshTokenStore} 의 변경을 {@link MappedJournal} 에 남긴다.
+ * <p>
+ * 생성 시점(= 빈 초기화, readiness 이전)에 스냅샷과 저널을 재생해 상태를 복원한다.
+ * 변경과 기록은 하나의 잠금으로 묶어 저널 순서가 실제 적용 순서와 같게 하고, 조회는 잠금 없이 바로 위임한다.
+ * 만료는 시각으로 판정되므로 기록하지 않고, 복원할 때 이미 만료된 토큰은 건너뛴다.
+ * 스냅샷은 snapshotter 스레드에서 잠금 안에서 토큰 목록만 복사하고, 파일은 잠금 밖에서 쓴다.
+ */
+@Slf4j
+public class JournaledRefreshTokenStore implements RefreshTokenStore, MeterBinder, DisposableBean {
+
+    private static final byte SAVE = 1;
+    private static final byte REVOKE = 2;
+    private static final byte MARK_REVOKED = 3;
+    // 회전 시각까지 남겨 유예 시간 판정용 후속 토큰도 복원한다.
+    private static final byte ROTATE = 4;
+    private static final byte REVOKE_SESSION = 5;
+    private static final byte REVOKE_USER = 6;
+    // 스냅샷 전용. 회전으로 폐기된 토큰을 후속 토큰, 회전 시각과 함께 남겨 재시작 뒤에도 유예 시간이 이어지게 한다.
+    private static final byte ROTATED = 7;
+
+    private record Token(String userId, String sessionId, String jti, Instant expiresAt, boolean revoked,
+                         @Nullable String successor, @Nullable Instant revokedAt) {}
+
+    private final InMemoryRefreshTokenStore delegate;
+    private final MappedJournal journal;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService snapshotter;
+
+    public JournaledRefreshTokenStore(InMemoryRefreshTokenStore delegate, MappedJournal journal, Duration snapshotInterval)
+            throws IOException {
+        this.delegate = delegate;
+        this.journal = journal;
+
+        long started = System.nanoTime();
+        long records = journal.replay(this::apply);
+        log.info("Restored refresh token store from {} records in {} ms",
+                records, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "refresh-token-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = snapshotInterval.toMillis();
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(String userId, String sessionId, String jti, Instant expiresAt) {
+        lock.lock();
+        try {
+            delegate.save(userId, sessionId, jti, expiresAt);
+            append(out -> {
+                out.writeByte(SAVE);
+                writeString(out, userId);
+                writeString(out, sessionId);
+                writeString(out, jti);
+                out.writeLong(expiresAt.getEpochSecond());
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String sessionId, String jti) {
+        return delegate.exists(sessionId, jti);
+    }
+
+    @Override
+    public void revoke(String sessionId, String jti) {
+        lock.lock();
+        try {
+            delegate.revoke(sessionId, jti);
+            append(out -> {
+                out.writeByte(REVOKE);
+                writeString(out, sessionId);
+                writeString(out, jti);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void markRevoked(String sessionId, String jti, Instant expiresAt) {
+        lock.lock();
+        try {
+            delegate.markRevoked(sessionId, jti, expiresAt);
+            append(out -> {
+                out.writeByte(MARK_REVOKED);
+                writeString(out, sessionId);
+                writeString(out, jti);
+                out.writeLong(expiresAt.getEpochSecond());
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String sessionId, String jti) {
+        return delegate.isRevoked(sessionId, jti);
+    }
+
+    @Override
+    public Successor rotatedWithin(String sessionId, String jti, Duration grace) {
+        return delegate.rotatedWithin(sessionId, jti, grace);
+    }
+
+    @Override
+    public boolean rotate(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                          String newJti, Instant newExpiresAt) {
+        lock.lock();
+        try {
+            if (!delegate.rotate(userId, sessionId, oldJti, oldExpiresAt, newJti, newExpiresAt)) {
+                return false;
+            }
+            long rotatedAt = System.currentTimeMillis();
+            append(out -> {
+                out.writeByte(ROTATE);
+                writeString(out, userId);
+                writeString(out, sessionId);
+                writeString(out, oldJti);
+                out.writeLong(oldExpiresAt.getEpochSecond());
+                writeString(out, newJti);
+                out.writeLong(newExpiresAt.getEpochSecond());
+                out.writeLong(rotatedAt);
+            });
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void revokeSession(String sessionId) {
+        lock.lock();
+        try {
+            delegate.revokeSession(sessionId);
+            append(out -> {
+                out.writeByte(REVOKE_SESSION);
+                writeString(out, sessionId);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void revokeAllForUser(String userId) {
+        lock.lock();
+        try {
+            delegate.revokeAllForUser(userId);
+            append(out -> {
+                out.writeByte(REVOKE_USER);
+                writeString(out, userId);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 현재 상태를 스냅샷으로 쓰고 스냅샷에 담긴 저널을 버린다.
+     * 변경은 토큰 목록을 복사하는 동안과 파일을 교체할 때만 기다리고, 쓰는 동안에는 계속 기록된다.
+     */
+    public void snapshot() throws IOException {
+        long started = System.nanoTime();
+        List<Token> tokens;
+        MappedJournal.Checkpoint checkpoint;
+        lock.lock();
+        try {
+            tokens = copyTokens();
+            checkpoint = journal.checkpoint();
+        } finally {
+            lock.unlock();
+        }
+        long copied = System.nanoTime();
+
+        Path written = journal.writeSnapshot(checkpoint, snapshotOf(tokens));
+
+        lock.lock();
+        try {
+            journal.install(checkpoint, written);
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Wrote refresh token snapshot in {} ms (copy {} ms)",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), TimeUnit.NANOSECONDS.toMillis(copied - started));
+    }
+
+    private List<Token> copyTokens() throws IOException {
+        List<Token> tokens = new ArrayList<>();
+        delegate.forEach((userId, sessionId, jti, expiresAt, revoked, successor, revokedAt) ->
+                tokens.add(new Token(userId, sessionId, jti, expiresAt, revoked, successor, revokedAt)));
+        return tokens;
+    }
+
+    private static MappedJournal.SnapshotSource snapshotOf(List<Token> tokens) {
+        return sink -> {
+            for (Token token : tokens) {
+                sink.append(out -> {
+                    if (token.successor() != null) {
+                        out.writeByte(ROTATED);
+                        writeString(out, token.sessionId());
+                        writeString(out, token.jti());
+                        out.writeLong(token.expiresAt().getEpochSecond());
+                        writeString(out, token.successor());
+                        out.writeLong(token.revokedAt().toEpochMilli());
+                        return;
+                    }
+                    out.writeByte(token.revoked() ? MARK_REVOKED : SAVE);
+                    if (!token.revoked()) {
+                        writeString(out, token.userId());
+                    }
+                    writeString(out, token.sessionId());
+                    writeString(out, token.jti());
+                    out.writeLong(token.expiresAt().getEpochSecond());
+                });
+            }
+        };
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // 예외가 밖으로 나가면 스케줄이 취소되므로 로그만 남긴다.
+            log.warn("Failed to write refresh token snapshot", e);
+        }
+    }
+
+    private void append(MappedJournal.RecordWriter record) {
+        try {
+            if (!journal.append(record)) {
+                // 다음 주기까지 기다릴 수 없으므로 잠금을 잡은 채로 스냅샷을 쓴다.
+                // 이 변경은 이미 저장소에 반영돼 스냅샷에 담기므로 다시 기록하지 않는다.
+                journal.rewrite(snapshotOf(copyTokens()));
+            }
+        } catch (IOException e) {
+            // 기록 실패로 인증 요청을 막지는 않는다. 다음 스냅샷이 현재 상태를 다시 담는다.
+            log.warn("Failed to append refresh token journal", e);
+        }
+    }
+
+    private void apply(DataInput in) throws IOException {
+        long now = Instant.now().getEpochSecond();
+        switch (in.readByte()) {
+            case SAVE -> {
+                String userId = readString(in);
+                String sessionId = readString(in);
+                String jti = readString(in);
+                long expiresAt = in.readLong();
+                if (expiresAt >= now) {
+                    delegate.save(userId, sessionId, jti, Instant.ofEpochSecond(expiresAt));
+                }
+            }
+            case REVOKE -> delegate.revoke(readString(in), readString(in));
+            case MARK_REVOKED -> {
+                String sessionId = readString(in);
+                String jti = readString(in);
+                long expiresAt = in.readLong();
+                if (expiresAt >= now) {
+                    delegate.markRevoked(sessionId, jti, Instant.ofEpochSecond(expiresAt));
+                }
+            }
+            case ROTATE -> {
+                String userId = readString(in);
+                String sessionId = readString(in);
+                String oldJti = readString(in);
+                long oldExpiresAt = in.readLong();
+                String newJti = readString(in);
+                long newExpiresAt = in.readLong();
+                Instant rotatedAt = Instant.ofEpochMilli(in.readLong());
+                // 이미 성공한 회전이므로 지금 시각으로 다시 판정하지 않고 결과만 옮긴다.
+                if (newExpiresAt >= now) {
+                    delegate.restoreRotation(userId, sessionId, oldJti, Instant.ofEpochSecond(oldExpiresAt),
+                            newJti, Instant.ofEpochSecond(newExpiresAt), rotatedAt);
+                } else {
+                    delegate.revoke(sessionId, oldJti);
+                    if (oldExpiresAt >= now) {
+                        delegate.markRevoked(sessionId, oldJti, Instant.ofEpochSecond(oldExpiresAt));
+                    }
+                }
+            }
+            case ROTATED -> {
+                String sessionId = readString(in);
+                String jti = readString(in);
+                long expiresAt = in.readLong();
+                String successor = readString(in);
+                Instant rotatedAt = Instant.ofEpochMilli(in.readLong());
+                if (expiresAt >= now) {
+                    delegate.restoreRevoked(sessionId, jti, Instant.ofEpochSecond(expiresAt), successor, rotatedAt);
+                }
+            }
+            case REVOKE_SESSION -> delegate.revokeSession(readString(in));
+            case REVOKE_USER -> delegate.revokeAllForUser(readString(in));
+            default -> throw new IOException("Unknown refresh token journal record");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        delegate.bindTo(registry);
+        Gauge.builder("snapshot.journal.used", journal, MappedJournal::usedBytes)
+                .tag("store", "refresh-token")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("snapshot.journal.capacity", journal, MappedJournal::capacityBytes)
+                .tag("store", "refresh-token")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        snapshotter.shutdown();
+        // 진행 중인 스냅샷이 끝난 뒤 종료 직전 상태를 스냅샷으로 남겨 다음 기동 때 저널 재생을 줄인다.
+        snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+        lock.lock();
+        try {
+            journal.rewrite(snapshotOf(copyTokens()));
+        } finally {
+            lock.unlock();
+            journal.close();
+            delegate.destroy();
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package org.spark.crossfit.auth.repository;
 
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
 import java.time.Instant;
 
 public interface RefreshTokenStore {
+
+    /**
+     * 회전으로 발급한 후속 토큰의 jti/만료 시각.
+     */
+    record Successor(String jti, Instant expiresAt) {}
+
     // 발급: sid + jti 저장 (TTL 포함)
     void save(String userId, String sessionId, String jti, Instant expiresAt);
 
@@ -12,10 +21,32 @@ public interface RefreshTokenStore {
     // 회전: 기존 jti 폐기
     void revoke(String sessionId, String jti);
 
+    /**
+     * 회전: 기존 jti 가 유효하면 폐기 목록으로 옮기고 새 jti 를 저장한다. 기존 jti 가 유효하지 않으면 false.
+     * 동시에 같은 토큰으로 갱신하면 하나만 성공해야 하므로, 저장소가 원자적으로 처리할 수 있으면 재정의한다.
+     */
+    default boolean rotate(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                           String newJti, Instant newExpiresAt) {
+        if (!exists(sessionId, oldJti)) {
+            return false;
+        }
+        revoke(sessionId, oldJti);
+        markRevoked(sessionId, oldJti, oldExpiresAt);
+        save(userId, sessionId, newJti, newExpiresAt);
+        return true;
+    }
+
     // 재사용 탐지(선택): 폐기된 jti를 짧게 기록해두기
     void markRevoked(String sessionId, String jti, Instant expiresAt);
     boolean isRevoked(String sessionId, String jti);
 
+    /**
+     * jti 가 grace 이내에 회전됐고 그때 발급한 후속 토큰이 아직 유효하면 그 후속 토큰, 아니면 null.
+     * 여러 탭이 같은 토큰으로 거의 동시에 갱신할 때, 어느 인스턴스로 들어오든 재사용 탐지 대신 같은 후속 토큰을 돌려주기 위해 쓴다.
+     */
+    @Nullable
+    Successor rotatedWithin(String sessionId, String jti, Duration grace);
+
     // 세션 전체 로그아웃
     void revokeSession(String sessionId);
 
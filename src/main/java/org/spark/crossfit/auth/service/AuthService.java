@@ -1,19 +1,55 @@
 package org.spark.crossfit.auth.service;
 
 import io.jsonwebtoken.Claims;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.spark.crossfit.auth.JwtTokenProvider;
 import org.spark.crossfit.auth.repository.RefreshTokenStore;
+import org.spark.crossfit.auth.dto.PendingRefreshToken;
 import org.spark.crossfit.auth.dto.TokenPair;
+import org.spark.crossfit.config.CustomApplicationConfig;
 import org.spark.crossfit.exception.UnauthorizedException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 리프레시 토큰 회전.
+ * <p>
+ * 여러 탭이 같은 리프레시 토큰으로 거의 동시에 갱신하면, 이 인스턴스에서는 먼저 들어온 요청 하나만 회전하고 나머지는 그 결과를 함께 받는다.
+ * 이미 회전된 토큰이 짧은 유예 시간 안에 다시 오면(다른 인스턴스에서 회전했더라도) 재사용 탐지 대신
+ * 그때 발급한 후속 토큰을 다시 서명해 돌려준다. 유예 여부는 저장소가 판정하므로 인스턴스가 여러 개여도 같다.
+ * 유예 시간이 지난 뒤의 재사용은 그대로 탈취로 보고 세션을 폐기한다.
+ */
 @Service
-@RequiredArgsConstructor
 public class AuthService {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final RefreshTokenStore store;
+    private final Duration gracePeriod;
+
+    // "sid:jti" -> 이 인스턴스에서 진행 중인 회전
+    private final ConcurrentMap<String, CompletableFuture<TokenPair>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter graceReuses;
+
+    public AuthService(
+            JwtTokenProvider jwtTokenProvider,
+            RefreshTokenStore store,
+            CustomApplicationConfig config,
+            MeterRegistry meterRegistry
+    ) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.store = store;
+        this.gracePeriod = config.getJwt().getRefreshGracePeriod();
+        this.graceReuses = Counter.builder("auth.refresh.grace.reused")
+                .description("Refreshes answered with the successor of a token rotated within the grace period")
+                .register(meterRegistry);
+    }
 
     public TokenPair refreshToken(String refreshToken) {
         Claims claims = jwtTokenProvider.validateAndGetClaims(refreshToken);
@@ -23,29 +59,64 @@ public class AuthService {
             throw new UnauthorizedException("Refresh token required");
         }
 
-        String userId = claims.getSubject();
-        String jti = claims.getId();
         String sid = claims.get("sid", String.class);
+        String key = sid + ':' + claims.getId();
 
-        if (store.isRevoked(sid, jti)) {
-            store.revokeSession(sid);
-            throw new UnauthorizedException("Refresh token replay detected");
+        CompletableFuture<TokenPair> mine = new CompletableFuture<>();
+        CompletableFuture<TokenPair> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
         }
 
-        // 2) 화이트리스트 확인
-        if (!store.exists(sid, jti)) {
-            throw new UnauthorizedException("Refresh token not recognized");
+        try {
+            TokenPair tokenPair = rotate(claims, sid);
+            mine.complete(tokenPair);
+            return tokenPair;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
         }
+    }
 
-        store.revoke(sid, jti);
-        store.markRevoked(sid, jti, jwtTokenProvider.validateAndGetClaims(refreshToken).getExpiration().toInstant());
+    private TokenPair rotate(Claims claims, String sid) {
+        String userId = claims.getSubject();
+        String jti = claims.getId();
 
+        // 같은 세션(sid)으로 재발급해야 다음 갱신 때 화이트리스트(sid + jti)와 일치한다.
+        // 서명은 비싸므로 jti/exp 만 먼저 정하고, 회전에 성공한 뒤에만 서명한다.
+        PendingRefreshToken next = jwtTokenProvider.nextRefreshToken(sid);
 
-        TokenPair tokenPair = jwtTokenProvider.issueTokenPair(userId);
+        // 화이트리스트 확인 + 회전을 한 번에 (동시에 같은 토큰으로 갱신하면 하나만 성공)
+        if (store.rotate(userId, sid, jti, claims.getExpiration().toInstant(), next.jti(), next.expiresAt())) {
+            return jwtTokenProvider.issueTokenPair(userId, next).tokenPair();
+        }
 
-        Claims newRefreshClaims = jwtTokenProvider.validateAndGetClaims(tokenPair.refreshToken());
-        store.save(userId, sid, newRefreshClaims.getId(), newRefreshClaims.getExpiration().toInstant());
+        // 유예 시간 안의 중복 갱신. 그사이 로그아웃 등으로 후속 토큰이 폐기됐으면 저장소가 null 을 준다.
+        RefreshTokenStore.Successor successor = store.rotatedWithin(sid, jti, gracePeriod);
+        if (successor != null) {
+            graceReuses.increment();
+            return jwtTokenProvider.issueTokenPair(userId, jwtTokenProvider.refreshTokenOf(sid, successor.jti(), successor.expiresAt()))
+                    .tokenPair();
+        }
 
-        return tokenPair;
+        if (store.isRevoked(sid, jti)) {
+            store.revokeSession(sid);
+            throw new UnauthorizedException("Refresh token replay detected");
+        }
+        throw new UnauthorizedException("Refresh token not recognized");
+    }
+
+    private static TokenPair await(CompletableFuture<TokenPair> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // 앞선 요청과 같은 예외(UnauthorizedException 등)를 그대로 돌려준다.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 }
@@ -49,20 +49,14 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
             throw new OAuth2AuthenticationException(new OAuth2Error("invalid_user"), "허용되지 않은 테스트 계정입니다");
         }
 
-        if (email != null) {
-            var memberOpt = memberService.findByEmail(email);
-            if (memberOpt.isEmpty()) {
-                // 신규 회원 가입 처리
-                memberService.registerMember(email, uid, nickname);
-                log.info("New member registered: {}", uid);
-            } else {
-                log.info("Existing member logged in: {}", uid);
-            }
-
-        } else {
+        if (email == null) {
             log.warn("Email not found in OAuth2 user attributes.");
+            throw new OAuth2AuthenticationException("Member not found after registration");
         }
-        var member = memberService.findByEmail(email).orElseThrow(() -> new OAuth2AuthenticationException("Member not found after registration"));
+
+        // 기존 회원은 조회 한 번, 신규 회원은 upsert 한 번
+        var member = memberService.loginMember(email, uid, nickname);
+        log.info("Member logged in: {}", uid);
 
         return new AuthDetails(member, Collections.singleton(new SimpleGrantedAuthority("ROLE_USER")));
 
@@ -1,18 +1,30 @@
 package org.spark.crossfit.config;
 
+import org.spark.crossfit.ai.memory.BoundedChatMemoryRepository;
+import org.spark.crossfit.ai.memory.ChatMemoryWindowRepository;
+import org.spark.crossfit.ai.memory.ConversationSummarizer;
+import org.spark.crossfit.ai.memory.JdbcWriteBehindChatMemoryRepository;
+import org.spark.crossfit.ai.memory.JournaledChatMemoryRepository;
+import org.spark.crossfit.ai.memory.TokenBudgetChatMemory;
+import org.spark.crossfit.snapshot.MappedJournal;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
-import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.prompt.SystemPromptTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestClient;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
@@ -22,14 +34,65 @@ import java.util.Map;
 public class AIConfig {
 
     @Bean
-    public InMemoryChatMemoryRepository inMemoryChatMemoryRepository() {
-        return new InMemoryChatMemoryRepository();
+    @ConditionalOnProperty(prefix = "custom.application.chat-memory", name = "store", havingValue = "memory")
+    public ChatMemoryWindowRepository boundedChatMemoryRepository(
+            CustomApplicationConfig customApplicationConfig
+    ) throws IOException {
+        var repository = new BoundedChatMemoryRepository(customApplicationConfig.getChatMemory());
+        var snapshot = customApplicationConfig.getSnapshot();
+        if (!snapshot.isEnabled()) {
+            return repository;
+        }
+        var journal = new MappedJournal(Path.of(snapshot.getDirectory()), "chat-memory", snapshot.getJournalBytes());
+        return new JournaledChatMemoryRepository(repository, journal, snapshot.getInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "custom.application.chat-memory", name = "store", havingValue = "jdbc", matchIfMissing = true)
+    public ChatMemoryWindowRepository jdbcChatMemoryRepository(
+            JdbcTemplate jdbcTemplate,
+            CustomApplicationConfig customApplicationConfig
+    ) {
+        var options = customApplicationConfig.getChatMemory();
+        return new JdbcWriteBehindChatMemoryRepository(jdbcTemplate, options);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor chatSummaryExecutor(Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("chat-summary-");
+        ThreadingConfig.useVirtualThreadsIfEnabled(executor, "chat-summary-", environment);
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(200);
+        return executor;
+    }
+
+    @Bean
+    public ChatMemory chatMemory(
+            ChatClient.Builder builder,
+            ChatMemoryWindowRepository chatMemoryRepository,
+            @Qualifier("chatSummaryExecutor") ThreadPoolTaskExecutor chatSummaryExecutor,
+            CustomApplicationConfig customApplicationConfig,
+            @Value("classpath:prompts/summary-prompt.st") Resource summaryPromptResource
+    ) {
+        var options = customApplicationConfig.getChatMemory();
+
+        String summaryPromptText = new SystemPromptTemplate(summaryPromptResource).render(
+                Map.of(
+                        "max_chars", options.getSummaryMaxChars()
+                )
+        );
+        // 요약용 ChatClient 에는 메모리 advisor 를 붙이지 않는다.
+        var summarizer = new ConversationSummarizer(builder.build(), summaryPromptText, options.getSummaryMaxChars());
+
+        return new TokenBudgetChatMemory(chatMemoryRepository, summarizer, chatSummaryExecutor, options);
     }
 
     @Bean
     public ChatClient accessoryChatClient(
             ChatClient.Builder builder,
-            InMemoryChatMemoryRepository chatMemoryRepository,
+            ChatMemory chatMemory,
             @Value("classpath:prompts/system-prompt.st") Resource systemPromptResource
     ) {
 
@@ -42,12 +105,6 @@ public class AIConfig {
                         "current_date", currentDateWithDay
                 )
         );
-        ChatMemory chatMemory = MessageWindowChatMemory.builder()
-                .chatMemoryRepository(chatMemoryRepository)
-                .maxMessages(15)
-                .build();
-
-
         return builder
                 .defaultSystem(systemPromptText)
                 .defaultAdvisors(
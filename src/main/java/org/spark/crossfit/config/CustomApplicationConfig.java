@@ -2,10 +2,15 @@ package org.spark.crossfit.config;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.spark.crossfit.auth.JwtAlgorithm;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.spark.crossfit.constants.CommonConstants.GOOGLE_VISION_API_HOST;
+
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "custom.application")
@@ -14,23 +19,50 @@ public class CustomApplicationConfig {
     private String defaultLoginFailureUrl;
     private String defaultLogoutSuccessUrl;
     private List<String> origins;
-    private Jwt jwt;
+    private Jwt jwt = new Jwt();
     private CookieOptions cookieOptions;
     private String googleApiKey;
+    // 부하 테스트 때 stub 서버(loadtest/stub-server.mjs)로 바꿔 외부 API 없이 실행한다.
+    private String googleVisionBaseUrl = "https://" + GOOGLE_VISION_API_HOST;
     private List<String> allowedUsers;
+    private ChatMemoryOptions chatMemory = new ChatMemoryOptions();
+    private ResponseCacheOptions responseCache = new ResponseCacheOptions();
+    private OcrCacheOptions ocrCache = new OcrCacheOptions();
+    private MyInfoCacheOptions myInfoCache = new MyInfoCacheOptions();
+    private OcrPreprocessOptions ocrPreprocess = new OcrPreprocessOptions();
+    private OcrBatchOptions ocrBatch = new OcrBatchOptions();
+    private OcrJobOptions ocrJob = new OcrJobOptions();
+    private RefreshTokenStoreOptions refreshTokenStore = new RefreshTokenStoreOptions();
+    private SnapshotOptions snapshot = new SnapshotOptions();
 
     @Getter
     @Setter
     public static class Jwt {
         private String issuer;
         private String audience;
+        // 서명 알고리즘 (RS256 | ES256 | EdDSA). 키 쌍은 알고리즘에 맞는 PKCS#8 / X.509 PEM
+        private JwtAlgorithm algorithm = JwtAlgorithm.RS256;
         private String keyId;
         private String privateKey;
         private String publicKey;
+        // 키 교체 후에도 기존 토큰을 검증하기 위한 이전 공개키 (kid 로 선택)
+        private List<VerificationKey> previousKeys = new ArrayList<>();
         private Long accessTokenTtl;
         private Long refreshTokenTtl;
         private String refreshTokenPurpose;
         private String accessTokenPurpose;
+        // 서명 검증을 마친 액세스 토큰 캐시 크기
+        private long verifiedCacheMaxEntries = 10_000;
+        // 같은 리프레시 토큰으로 거의 동시에 갱신하면(여러 탭) 이 시간 동안은 재사용 탐지 대신 이미 발급한 후속 토큰을 돌려준다
+        private Duration refreshGracePeriod = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class VerificationKey {
+        private String keyId;
+        private JwtAlgorithm algorithm = JwtAlgorithm.RS256;
+        private String publicKey;
     }
 
     @Getter
@@ -42,4 +74,115 @@ public class CustomApplicationConfig {
         private String domain;
     }
 
+    @Getter
+    @Setter
+    public static class ChatMemoryOptions {
+        // jdbc: PostgreSQL write-behind 저장소, memory: 프로세스 내 저장소
+        private String store = "jdbc";
+        // 대화별로 유지하는 최대 메시지 수 (요약 메시지 1개 포함)
+        private int maxMessages = 15;
+        // 대화 메모리의 추정 토큰 상한. 넘으면 오래된 턴을 compactToTokens 까지 잘라내고 요약으로 옮긴다.
+        private int maxTokens = 3000;
+        private int compactToTokens = 1800;
+        private int summaryMaxChars = 800;
+        // write-behind 큐 용량 / 한 번의 multi-row insert 최대 행 수
+        private int writeQueueCapacity = 10000;
+        private int writeBatchSize = 100;
+        // 메모리에 올려둘 대화 전체의 추정 바이트 상한 / 이 시간 동안 접근 없는 대화는 축출
+        private long maxBytes = 64L * 1024 * 1024;
+        private Duration idleTtl = Duration.ofHours(2);
+    }
+
+    @Getter
+    @Setter
+    public static class ResponseCacheOptions {
+        // 첫 턴(WOD 분석) 응답 캐시. WOD 는 하루 단위라 TTL 을 길게 가져가지 않는다.
+        private boolean enabled = true;
+        private long maxEntries = 1000;
+        private Duration ttl = Duration.ofHours(12);
+    }
+
+    @Getter
+    @Setter
+    public static class MyInfoCacheOptions {
+        // /api/user/me 응답(MyInfo) 캐시. 이 노드의 수정/가입 시 비우고, TTL 은 다른 노드에서 수정한 값이 보이기까지의 최대 지연
+        private long maxEntries = 10_000;
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class OcrCacheOptions {
+        // 메모리 캐시에 올려둘 OCR 텍스트의 추정 바이트 상한
+        private long maxBytes = 16L * 1024 * 1024;
+        // 지정하면 재시작 후에도 유지되는 디스크 캐시를 사용
+        private String diskDirectory;
+        // 디스크 캐시 상한. 넘으면 오래 쓰이지 않은 파일부터 지운다. / 이 시간 동안 쓰이지 않은 파일은 지운다.
+        private long diskMaxBytes = 512L * 1024 * 1024;
+        private Duration diskMaxAge = Duration.ofDays(30);
+        private Duration diskPruneInterval = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class OcrPreprocessOptions {
+        // 이미지당 수백 ms 의 CPU 를 쓰는데 Vision 쪽에서 그만큼 줄어드는지는 아직 재보지 않았으므로 기본은 끈다.
+        private boolean enabled = false;
+        // 긴 변 기준 최대 픽셀. Vision OCR 은 이 정도 해상도면 화이트보드 글씨를 충분히 읽는다.
+        private int maxLongEdge = 1600;
+        private float jpegQuality = 0.85f;
+        // 동시에 디코딩하는 이미지 수 (0 이면 CPU 코어 수) / 대기열 길이
+        private int threads = 0;
+        private int queueCapacity = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class OcrBatchOptions {
+        // 한 번의 배치 OCR 요청에서 받는 최대 이미지 수
+        private int maxImages = 10;
+        // images:annotate 한 번에 묶는 이미지 수 (Vision 상한 16장)
+        private int imagesPerRequest = 4;
+        // 한 번에 묶는 Base64 페이로드 상한 (Vision 요청 본문 상한 10MB, JSON 오버헤드 여유)
+        private long maxRequestBytes = 8L * 1024 * 1024;
+        // 묶음이 여러 개일 때 동시에 보내는 Vision 호출 수
+        private int threads = 4;
+    }
+
+    @Getter
+    @Setter
+    public static class OcrJobOptions {
+        // 비동기 OCR 작업을 처리하는 스레드 수 / 대기열 길이 (가득 차면 503)
+        private int threads = 4;
+        private int queueCapacity = 100;
+        // 완료된 작업 결과를 조회할 수 있는 시간
+        private Duration resultTtl = Duration.ofMinutes(10);
+        private Duration sseTimeout = Duration.ofSeconds(60);
+        // 업로드 파일을 작업 완료 시까지 보관할 디렉토리 (비어 있으면 java.io.tmpdir)
+        private String stagingDirectory;
+    }
+
+    @Getter
+    @Setter
+    public static class RefreshTokenStoreOptions {
+        // memory: 단일 인스턴스용 / compact: 단일 인스턴스, 세션이 아주 많을 때 (원시 배열) / jdbc: 여러 인스턴스가 공유 (재시작해도 로그인 유지)
+        private String store = "memory";
+        // 만료 토큰 정리 주기 / 한 번에 정리하는 최대 개수 (정리 스레드가 오래 붙잡지 않도록)
+        private Duration sweepInterval = Duration.ofSeconds(30);
+        private int sweepBatchSize = 1000;
+        // compact 저장소의 처음 토큰 슬롯 수 (2의 거듭제곱으로 올림, 부족하면 두 배씩 늘어남)
+        private int compactInitialCapacity = 1 << 16;
+    }
+
+    @Getter
+    @Setter
+    public static class SnapshotOptions {
+        // 메모리 저장소(refresh-token-store.store=memory, chat-memory.store=memory)를 파일에 남겨 재시작 후 복원
+        private boolean enabled = false;
+        private String directory = "data/snapshot";
+        // 전체 스냅샷 주기. 그 사이의 변경은 메모리 매핑 저널에 덧붙인다. (가득 차면 바로 스냅샷)
+        private Duration interval = Duration.ofMinutes(5);
+        private int journalBytes = 64 * 1024 * 1024;
+    }
+
 }
@@ -0,0 +1,54 @@
+package org.spark.crossfit.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class OcrConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor ocrPreprocessExecutor(CustomApplicationConfig customApplicationConfig) {
+        var options = customApplicationConfig.getOcrPreprocess();
+        int threads = options.getThreads() > 0 ? options.getThreads() : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ocr-preprocess-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(options.getQueueCapacity());
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor ocrRequestExecutor(CustomApplicationConfig customApplicationConfig, Environment environment) {
+        var options = customApplicationConfig.getOcrBatch();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ocr-request-");
+        ThreadingConfig.useVirtualThreadsIfEnabled(executor, "ocr-request-", environment);
+        executor.setCorePoolSize(options.getThreads());
+        executor.setMaxPoolSize(options.getThreads());
+        executor.setQueueCapacity(options.getThreads() * 4);
+        // 풀이 가득 차면 요청 스레드에서 직접 호출한다. (묶음 호출은 거절되지 않고 느려질 뿐)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor ocrJobExecutor(CustomApplicationConfig customApplicationConfig, Environment environment) {
+        var options = customApplicationConfig.getOcrJob();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ocr-job-");
+        ThreadingConfig.useVirtualThreadsIfEnabled(executor, "ocr-job-", environment);
+        executor.setCorePoolSize(options.getThreads());
+        executor.setMaxPoolSize(options.getThreads());
+        // 기본 AbortPolicy: 대기열이 가득 차면 제출 시점에 거절해 업로드 요청에 바로 알린다.
+        executor.setQueueCapacity(options.getQueueCapacity());
+        return executor;
+    }
+}
@@ -0,0 +1,46 @@
+package org.spark.crossfit.config;
+
+import org.spark.crossfit.auth.repository.CompactRefreshTokenStore;
+import org.spark.crossfit.auth.repository.InMemoryRefreshTokenStore;
+import org.spark.crossfit.auth.repository.JdbcRefreshTokenStore;
+import org.spark.crossfit.auth.repository.JournaledRefreshTokenStore;
+import org.spark.crossfit.auth.repository.RefreshTokenStore;
+import org.spark.crossfit.snapshot.MappedJournal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class RefreshTokenStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "custom.application.refresh-token-store", name = "store", havingValue = "memory", matchIfMissing = true)
+    public RefreshTokenStore inMemoryRefreshTokenStore(CustomApplicationConfig customApplicationConfig) throws IOException {
+        var store = new InMemoryRefreshTokenStore(customApplicationConfig);
+        var snapshot = customApplicationConfig.getSnapshot();
+        if (!snapshot.isEnabled()) {
+            return store;
+        }
+        var journal = new MappedJournal(Path.of(snapshot.getDirectory()), "refresh-token", snapshot.getJournalBytes());
+        return new JournaledRefreshTokenStore(store, journal, snapshot.getInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "custom.application.refresh-token-store", name = "store", havingValue = "compact")
+    public RefreshTokenStore compactRefreshTokenStore(CustomApplicationConfig customApplicationConfig) {
+        return new CompactRefreshTokenStore(customApplicationConfig);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "custom.application.refresh-token-store", name = "store", havingValue = "jdbc")
+    public RefreshTokenStore jdbcRefreshTokenStore(
+            JdbcTemplate jdbcTemplate,
+            CustomApplicationConfig customApplicationConfig
+    ) {
+        return new JdbcRefreshTokenStore(jdbcTemplate, customApplicationConfig.getRefreshTokenStore());
+    }
+}
@@ -0,0 +1,48 @@
+package org.spark.crossfit.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * spring.threads.virtual.enabled 에 따른 실행 모드.
+ * <p>
+ * 켜면 Spring Boot 가 요청 처리(Tomcat)를 가상 스레드로 돌리고, 여기서는 SSE 전송과 블로킹 IO 용 실행기를 맞춰 바꾼다.
+ * 풀 크기/대기열은 그대로 두어 외부 API 동시 호출 수와 503 기준은 모드와 관계없이 같다.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    /**
+     * LLM 스트림 청크를 받아 emitter.send(블로킹)를 호출하는 스케줄러. 청크 순서는 publishOn 이 보장한다.
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler sseScheduler() {
+        return Schedulers.fromExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-", 0).factory()), "sse");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler platformSseScheduler() {
+        // 공유 스케줄러라 dispose 는 무시된다.
+        return Schedulers.boundedElastic();
+    }
+
+    /**
+     * 가상 스레드 모드면 IO 대기 위주의 실행기를 가상 스레드로 바꾼다. CPU 작업(이미지 전처리) 실행기에는 쓰지 않는다.
+     */
+    static void useVirtualThreadsIfEnabled(ThreadPoolTaskExecutor executor, String namePrefix, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor.setThreadFactory(Thread.ofVirtual().name(namePrefix, 0).factory());
+        }
+    }
+}
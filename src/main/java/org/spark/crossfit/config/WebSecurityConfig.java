@@ -5,12 +5,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.spark.crossfit.auth.JwtTokenProvider;
+import org.spark.crossfit.auth.VerifiedTokenCache;
 import org.spark.crossfit.auth.dto.AuthDetails;
+import org.spark.crossfit.auth.dto.IssuedToken;
 import org.spark.crossfit.auth.filter.RestAccessDeniedHandler;
 import org.spark.crossfit.auth.filter.RestAuthenticationEntryPoint;
 import org.spark.crossfit.auth.repository.RefreshTokenStore;
 import org.spark.crossfit.auth.filter.JwtAuthenticationFilter;
 import org.spark.crossfit.auth.service.CustomOAuth2UserService;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -54,9 +57,10 @@ public class WebSecurityConfig {
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter(
+            VerifiedTokenCache verifiedTokenCache,
             AuthenticationEntryPoint restAuthenticationEntryPoint
     ) {
-        return new JwtAuthenticationFilter(jwtTokenProvider, restAuthenticationEntryPoint);
+        return new JwtAuthenticationFilter(verifiedTokenCache, restAuthenticationEntryPoint);
     }
 
 
@@ -80,6 +84,8 @@ public class WebSecurityConfig {
                 )
                 .authorizeHttpRequests(auth -> auth
                         .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                        // actuator 는 내부 전용 management 포트에서만 열린다. (JWT 없이 헬스체크/지표 수집)
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
                         .requestMatchers("/").permitAll()
                         .requestMatchers("/login/**").permitAll()
                         .requestMatchers("/oauth2/**").permitAll()
@@ -131,13 +137,11 @@ public class WebSecurityConfig {
 
             // 2. RefreshToken 및 SID 생성
             String sid = java.util.UUID.randomUUID().toString();
-            String refresh = jwtTokenProvider.issueRefreshToken(userId, sid);
-
-            var refreshClaims = jwtTokenProvider.validateAndGetClaims(refresh);
-            refreshTokenStore.save(userId, sid, refreshClaims.getId(), refreshClaims.getExpiration().toInstant());
+            IssuedToken refresh = jwtTokenProvider.issueRefreshToken(userId, sid);
+            refreshTokenStore.save(userId, sid, refresh.jti(), refresh.expiresAt());
 
             String targetUrl = UriComponentsBuilder.fromUriString(customApplicationConfig.getDefaultLoginSuccessUrl())
-                    .queryParam("refreshToken", refresh)
+                    .queryParam("refreshToken", refresh.token())
                     .build().toUriString();
 
             // 5. 리다이렉트 실행
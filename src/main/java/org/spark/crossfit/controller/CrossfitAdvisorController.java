@@ -4,16 +4,27 @@ import lombok.RequiredArgsConstructor;
 import org.spark.crossfit.ai.AccessoryAgentOrchestrator;
 import org.spark.crossfit.dto.CommonResult;
 import org.spark.crossfit.dto.MyInfo;
+import org.spark.crossfit.dto.OcrJobResult;
 import org.spark.crossfit.dto.OcrResult;
 import org.spark.crossfit.dto.command.ChangeMyInfoCommand;
 import org.spark.crossfit.dto.command.ChatCommand;
 import org.spark.crossfit.service.CrossfitAdvisorService;
 import org.spark.crossfit.service.GoogleVisionOcrService;
+import org.spark.crossfit.service.OcrJobService;
+import org.spark.crossfit.service.PhotoChatService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.spark.crossfit.util.SecurityUtil.getCurrentUserId;
+
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
@@ -22,17 +33,36 @@ public class CrossfitAdvisorController {
     private final CrossfitAdvisorService crossfitAdvisorService;
     private final GoogleVisionOcrService ocrService;
     private final AccessoryAgentOrchestrator orchestrator;
+    private final OcrJobService ocrJobService;
+    private final PhotoChatService photoChatService;
 
+    /**
+     * 버전 기반 ETag 를 붙인다. If-None-Match 가 같으면 본문 없이 304 를 돌려준다. (MyInfo 는 캐시에서 나오므로 DB 조회 없음)
+     */
     @GetMapping("/user/me")
-    public CommonResult<MyInfo> getMyInfo() {
+    public ResponseEntity<CommonResult<MyInfo>> getMyInfo() {
         var myInfo = crossfitAdvisorService.getMyInfo();
-        return CommonResult.success(myInfo);
+        return ResponseEntity.ok()
+                .eTag(CrossfitAdvisorService.eTagOf(myInfo))
+                // 기본 no-store 대신, 브라우저가 보관하되 매번 ETag 로 재검증하게 한다.
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(CommonResult.success(myInfo));
     }
 
+    /**
+     * If-Match 를 보내면 그 버전일 때만 수정하고, 다른 기기에서 먼저 수정했으면 412 를 돌려준다.
+     */
     @PutMapping("/user/me")
-    public CommonResult<Void> updateMyInfo(@RequestBody ChangeMyInfoCommand command) {
-        crossfitAdvisorService.updateMyInfo(command);
-        return CommonResult.success(null);
+    public ResponseEntity<CommonResult<Void>> updateMyInfo(
+            @RequestBody ChangeMyInfoCommand command,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        var eTag = crossfitAdvisorService.updateMyInfo(command, ifMatch);
+        var response = ResponseEntity.ok();
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response.body(CommonResult.success(null));
     }
 
 
@@ -41,7 +71,23 @@ public class CrossfitAdvisorController {
     public SseEmitter chat(@RequestBody ChatCommand command, @RequestHeader(value = "Conversation-Id") String conversationId) {
         SseEmitter emitter = new SseEmitter(0L);
 
-        orchestrator.stream(conversationId, command, emitter);
+        orchestrator.stream(conversationId, command, crossfitAdvisorService::getMyInfo, emitter);
+
+        return emitter;
+    }
+
+    /**
+     * 사진 업로드 한 번으로 OCR 결과(ocr 이벤트)와 코치 답변(message 이벤트)을 같은 SSE 로 받는다.
+     */
+    @PostMapping(value = "/accessory/photo-chat", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public SseEmitter photoChat(
+            @RequestPart("file") MultipartFile file,
+            @RequestPart(value = "message", required = false) String message,
+            @RequestHeader(value = "Conversation-Id") String conversationId
+    ) throws Exception {
+        SseEmitter emitter = new SseEmitter(0L);
+
+        photoChatService.stream(conversationId, file, message, getCurrentUserId(), emitter);
 
         return emitter;
     }
@@ -51,8 +97,42 @@ public class CrossfitAdvisorController {
     public CommonResult<OcrResult> ocr(
             @RequestPart("file") MultipartFile file
     ) throws Exception {
-        byte[] imageBytes = file.getBytes();
-        String ocrResultStr = ocrService.detectText(imageBytes);
+        String ocrResultStr = ocrService.detectText(file);
         return CommonResult.success(new OcrResult(ocrResultStr));
     }
+
+    /**
+     * WOD 가 여러 장에 걸쳐 있을 때 한 번에 올린다. 장별 인식 결과를 올린 순서대로 이어 붙인다.
+     */
+    @PostMapping(value = "/ocr/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CommonResult<OcrResult> ocrBatch(
+            @RequestPart("files") List<MultipartFile> files
+    ) throws Exception {
+        String ocrResultStr = ocrService.detectTexts(files).stream()
+                .filter(text -> !text.isBlank())
+                .collect(Collectors.joining("\n\n"));
+        return CommonResult.success(new OcrResult(ocrResultStr));
+    }
+
+    /**
+     * 업로드만 받고 작업 id 를 바로 돌려준다. 결과는 아래 조회/구독 API 로 받는다.
+     */
+    @PostMapping(value = "/ocr/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CommonResult<OcrJobResult> submitOcrJob(
+            @RequestPart("file") MultipartFile file
+    ) throws Exception {
+        var job = ocrJobService.submit(file, getCurrentUserId());
+        return CommonResult.success(job);
+    }
+
+    @GetMapping("/ocr/jobs/{jobId}")
+    public CommonResult<OcrJobResult> getOcrJob(@PathVariable String jobId) {
+        var job = ocrJobService.get(jobId, getCurrentUserId());
+        return CommonResult.success(job);
+    }
+
+    @GetMapping(value = "/ocr/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeOcrJob(@PathVariable String jobId) {
+        return ocrJobService.subscribe(jobId, getCurrentUserId());
+    }
 }
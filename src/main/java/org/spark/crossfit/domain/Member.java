@@ -24,6 +24,9 @@ public class Member {
     private UnitType unitType;
     private Integer workoutMinutes;
     private String additionalInfo;
+    // 프로필을 수정할 때마다 1 씩 오른다. (ETag / If-Match)
+    @Version
+    private Long version;
 
     public void changeNickname(String nickname) {
         this.nickname = nickname;
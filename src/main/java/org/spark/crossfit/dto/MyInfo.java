@@ -1,5 +1,6 @@
 package org.spark.crossfit.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 @Getter
@@ -14,4 +15,7 @@ public class MyInfo {
     private UnitType unitType;
     private Integer workoutMinutes;
     private String additionalInfo;
+    // 응답 본문이 아니라 ETag 헤더로 내보낸다.
+    @JsonIgnore
+    private Long version;
 }
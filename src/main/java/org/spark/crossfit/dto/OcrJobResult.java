@@ -0,0 +1,16 @@
+package org.spark.crossfit.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrJobResult {
+    private String jobId;
+    private OcrJobStatus status;
+    private String detectedText;
+    private String error;
+}
@@ -0,0 +1,8 @@
+package org.spark.crossfit.dto;
+
+public enum OcrJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -1,9 +0,0 @@
-package org.spark.crossfit.dto.google;
-
-
-import java.util.List;
-
-public record AnnotateImageRequest(
-        VisionImage image,
-        List<VisionFeature> features
-) {}
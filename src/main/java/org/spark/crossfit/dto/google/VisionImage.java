@@ -1,5 +0,0 @@
-package org.spark.crossfit.dto.google;
-
-public record VisionImage(
-        String content // base64
-) {}
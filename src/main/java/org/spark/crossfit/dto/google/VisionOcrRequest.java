@@ -1,7 +0,0 @@
-package org.spark.crossfit.dto.google;
-
-import java.util.List;
-
-public record VisionOcrRequest(
-        List<AnnotateImageRequest> requests
-) {}
@@ -5,5 +5,7 @@ import java.util.List;
 
 public record VisionOcrResult(
         List<TextAnnotation> textAnnotations,
-        FullTextAnnotation fullTextAnnotation
+        FullTextAnnotation fullTextAnnotation,
+        // 이미지 단위 실패. 요청 전체가 성공해도 일부 이미지만 실패할 수 있다.
+        VisionStatus error
 ) {}
@@ -0,0 +1,6 @@
+package org.spark.crossfit.dto.google;
+
+public record VisionStatus(
+        Integer code,
+        String message
+) {}
@@ -21,6 +21,18 @@ public class ExceptionAdvice {
         return ResponseEntity.badRequest().body(result);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<CommonResult<Void>> handlePreconditionFailedException(PreconditionFailedException ex) {
+        var result = CommonResult.<Void>failure(ex.getMessage());
+        return ResponseEntity.status(412).body(result);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<CommonResult<Void>> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        var result = CommonResult.<Void>failure(ex.getMessage());
+        return ResponseEntity.status(503).body(result);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<CommonResult<Void>> handleGeneralException(Exception ex) {
         var result = CommonResult.<Void>failure("Internal server error");
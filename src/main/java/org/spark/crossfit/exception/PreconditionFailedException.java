@@ -0,0 +1,7 @@
+package org.spark.crossfit.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
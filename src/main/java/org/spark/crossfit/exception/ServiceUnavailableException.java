@@ -0,0 +1,7 @@
+package org.spark.crossfit.exception;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
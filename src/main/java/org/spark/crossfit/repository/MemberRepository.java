@@ -1,8 +1,14 @@
 package org.spark.crossfit.repository;
 
 import org.spark.crossfit.domain.Member;
+import org.spark.crossfit.dto.MyInfo;
+import org.spark.crossfit.dto.UnitType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -12,4 +18,50 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     Optional<Member> findMemberByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    // 동시에 처음 로그인해도 email 유니크 인덱스(ux_member_email)에서 한 행으로 합쳐진다.
+    // DO NOTHING 은 충돌 시 행을 돌려주지 않으므로, 값을 바꾸지 않는 UPDATE 로 기존 행을 RETURNING 한다.
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            insert into member (email, uid, nickname, unit_type)
+            values (:email, :uid, :nickname, :unitType)
+            on conflict (email) do update set email = excluded.email
+            returning *
+            """)
+    Member upsertByEmail(
+            @Param("email") String email,
+            @Param("uid") String uid,
+            @Param("nickname") String nickname,
+            @Param("unitType") String unitType
+    );
+
+    // 프로필 조회용. 엔티티 대신 필요한 컬럼만 읽는다. (영속성 컨텍스트에 올라가지 않음)
+    @Query("""
+            select new org.spark.crossfit.dto.MyInfo(m.email, m.nickname, m.unitType, m.workoutMinutes, m.additionalInfo, m.version)
+            from Member m
+            where m.email = :email
+            """)
+    Optional<MyInfo> findMyInfoByEmail(@Param("email") String email);
+
+    // null 인 항목은 기존 값을 유지하는 부분 수정. 조회 없이 한 문장으로 끝낸다.
+    // version 을 넘기면 그 버전일 때만 바꾼다. (잠금 없이 동시 수정 감지, 0 이면 충돌 또는 회원 없음)
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Member m
+            set m.nickname = coalesce(:nickname, m.nickname),
+                m.unitType = coalesce(:unitType, m.unitType),
+                m.workoutMinutes = coalesce(:workoutMinutes, m.workoutMinutes),
+                m.additionalInfo = coalesce(:additionalInfo, m.additionalInfo),
+                m.version = m.version + 1
+            where m.email = :email
+              and (:version is null or m.version = :version)
+            """)
+    int updateMyInfo(
+            @Param("email") String email,
+            @Param("nickname") String nickname,
+            @Param("unitType") UnitType unitType,
+            @Param("workoutMinutes") Integer workoutMinutes,
+            @Param("additionalInfo") String additionalInfo,
+            @Param("version") Long version
+    );
 }
@@ -4,9 +4,13 @@ package org.spark.crossfit.service;
 import lombok.RequiredArgsConstructor;
 import org.spark.crossfit.dto.MyInfo;
 import org.spark.crossfit.dto.command.ChangeMyInfoCommand;
+import org.spark.crossfit.exception.PreconditionFailedException;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.util.NoSuchElementException;
+
 import static org.spark.crossfit.util.SecurityUtil.getCurrentUserId;
 
 @Service
@@ -14,38 +18,74 @@ import static org.spark.crossfit.util.SecurityUtil.getCurrentUserId;
 public class CrossfitAdvisorService {
 
     private final MemberService memberService;
+    private final MyInfoCache myInfoCache;
 
     public MyInfo getMyInfo() {
         var userId = SecurityContextHolder.getContext().getAuthentication().getPrincipal().toString();
-        var member = memberService.findByEmail(userId).orElseThrow();
-        return MyInfo.builder()
-                .nickname(member.getNickname())
-                .email(member.getEmail())
-                .unitType(member.getUnitType())
-                .workoutMinutes(member.getWorkoutMinutes())
-                .additionalInfo(member.getAdditionalInfo())
-                .build();
+        return getMyInfo(userId);
+    }
+
+    /**
+     * SecurityContext 가 없는 작업 스레드에서 호출할 때는 요청 스레드에서 꺼낸 userId 를 넘긴다.
+     * 캐시에 있으면 DB 를 건드리지 않는다. (다른 노드에서 수정한 값은 my-info-cache.ttl 안에 반영된다)
+     */
+    public MyInfo getMyInfo(String userId) {
+        return myInfoCache.get(userId, email -> memberService.findMyInfoByEmail(email).orElseThrow());
     }
 
-    public void updateMyInfo(ChangeMyInfoCommand command) {
+    /**
+     * @param ifMatch If-Match 헤더. 있으면 그 ETag 의 버전일 때만 바꾸고, 다르면 412.
+     * @return 수정 후의 ETag. If-Match 없이 바꿨으면 새 버전을 모르므로 null
+     */
+    @Nullable
+    public String updateMyInfo(ChangeMyInfoCommand command, @Nullable String ifMatch) {
 
         var userId = getCurrentUserId();
-        var member = memberService.findByEmail(userId).orElseThrow();
+        Long expectedVersion = ifMatch == null ? null : versionOf(userId, ifMatch);
 
-        if(command.nickname() != null) {
-            member.changeNickname(command.nickname());
-        }
-        if(command.unitType() != null) {
-            member.changeUnitType(command.unitType());
-        }
-        if(command.workoutMinutes() != null) {
-            member.changeWorkoutMinutes(command.workoutMinutes());
+        // 엔티티를 읽어 dirty checking 하지 않고 바뀐 항목만 UPDATE 한 번으로 반영한다.
+        if (!memberService.updateMyInfo(userId, command, expectedVersion)) {
+            if (expectedVersion != null && memberService.existsByEmail(userId)) {
+                throw new PreconditionFailedException("MyInfo has been modified");
+            }
+            throw new NoSuchElementException("Member not found");
         }
+        // 최종 값은 DB 가 정하므로 다음 조회에서 다시 읽는다.
+        myInfoCache.invalidate(userId);
+        return expectedVersion == null ? null : eTagOf(userId, expectedVersion + 1);
+    }
 
-        if(command.additionalInfo() != null) {
-            member.changeAdditionalInfo(command.additionalInfo());
-        }
+    /**
+     * 사용자마다 버전이 0 부터 시작하므로, 같은 브라우저에서 계정을 바꿔도 304 가 나지 않도록 이메일 해시를 섞는다.
+     */
+    public static String eTagOf(MyInfo myInfo) {
+        return eTagOf(myInfo.getEmail(), myInfo.getVersion());
+    }
+
+    private static String eTagOf(String email, long version) {
+        return "\"" + Integer.toHexString(email.hashCode()) + "-" + version + "\"";
+    }
 
-        memberService.updateMember(member);
+    /**
+     * If-Match 에서 이 사용자의 ETag 를 찾아 버전을 꺼낸다. "*" 이면 버전을 확인하지 않는다.
+     * If-Match 는 강한 비교이므로 약한 ETag(W/)는 맞지 않는 것으로 본다.
+     */
+    @Nullable
+    static Long versionOf(String email, String ifMatch) {
+        if (ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + Integer.toHexString(email.hashCode()) + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                try {
+                    return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+                } catch (NumberFormatException ignored) {
+                    // 다른 형식의 ETag
+                }
+            }
+        }
+        throw new PreconditionFailedException("MyInfo has been modified");
     }
 }
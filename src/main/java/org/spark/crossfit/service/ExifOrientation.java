@@ -0,0 +1,107 @@
+package org.spark.crossfit.service;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JPEG 의 APP1(Exif) 세그먼트에서 Orientation(0x0112) 태그만 읽는다.
+ * 휴대폰 사진은 픽셀은 눕혀 둔 채 이 태그로 회전을 표시하는 경우가 많다.
+ */
+final class ExifOrientation {
+
+    static final int NORMAL = 1;
+
+    private static final int SOI = 0xFFD8;
+    private static final int APP1 = 0xFFE1;
+    private static final int SOS = 0xFFDA;
+    private static final int EOI = 0xFFD9;
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * @return 1~8 의 EXIF orientation 값. JPEG 가 아니거나 태그가 없으면 {@link #NORMAL}
+     */
+    static int read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        try {
+            if (data.readUnsignedShort() != SOI) {
+                return NORMAL;
+            }
+            while (true) {
+                int marker = data.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == SOS || marker == EOI) {
+                    // 이미지 데이터가 시작되면 더 이상 메타데이터가 없다.
+                    return NORMAL;
+                }
+                int length = data.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return NORMAL;
+                }
+                if (marker != APP1) {
+                    data.skipNBytes(length);
+                    continue;
+                }
+
+                byte[] segment = new byte[length];
+                data.readFully(segment);
+                if (isExif(segment)) {
+                    return parseTiff(segment, 6);
+                }
+            }
+        } catch (EOFException e) {
+            return NORMAL;
+        }
+    }
+
+    private static boolean isExif(byte[] segment) {
+        return segment.length >= 14
+                && segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i' && segment[3] == 'f'
+                && segment[4] == 0 && segment[5] == 0;
+    }
+
+    private static int parseTiff(byte[] b, int base) {
+        boolean littleEndian;
+        if (b[base] == 'I' && b[base + 1] == 'I') {
+            littleEndian = true;
+        } else if (b[base] == 'M' && b[base + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return NORMAL;
+        }
+
+        long ifdOffset = base + u32(b, base + 4, littleEndian);
+        if (ifdOffset < 0 || ifdOffset + 2 > b.length) {
+            return NORMAL;
+        }
+        int ifd = (int) ifdOffset;
+        int entries = u16(b, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > b.length) {
+                break;
+            }
+            if (u16(b, entry, littleEndian) == ORIENTATION_TAG) {
+                int value = u16(b, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : NORMAL;
+            }
+        }
+        return NORMAL;
+    }
+
+    private static int u16(byte[] b, int offset, boolean littleEndian) {
+        int b0 = b[offset] & 0xFF;
+        int b1 = b[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static long u32(byte[] b, int offset, boolean littleEndian) {
+        long hi = u16(b, offset + (littleEndian ? 2 : 0), littleEndian);
+        long lo = u16(b, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (hi << 16) | lo;
+    }
+}
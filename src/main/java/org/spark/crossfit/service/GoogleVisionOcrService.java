@@ -1,60 +1,251 @@
 package org.spark.crossfit.service;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.spark.crossfit.config.CustomApplicationConfig;
 import org.spark.crossfit.dto.google.*;
+import org.spark.crossfit.util.DigestUtil;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import static org.spark.crossfit.constants.CommonConstants.GOOGLE_VISION_API_HOST;
 import static org.spark.crossfit.constants.CommonConstants.GOOGLE_VISION_API_PATH;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class GoogleVisionOcrService {
+    // images:annotate 동기 호출 한 번에 보낼 수 있는 최대 이미지 수
+    private static final int VISION_MAX_IMAGES_PER_REQUEST = 16;
+    private static final List<VisionFeature> FEATURES = List.of(new VisionFeature("TEXT_DETECTION"));
+
     private final CustomApplicationConfig config;
     private final RestClient restClient;
+    private final OcrResultCache ocrResultCache;
+    private final OcrImagePreprocessor ocrImagePreprocessor;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor ocrRequestExecutor;
+
+    public GoogleVisionOcrService(
+            CustomApplicationConfig config,
+            RestClient restClient,
+            OcrResultCache ocrResultCache,
+            OcrImagePreprocessor ocrImagePreprocessor,
+            ObjectMapper objectMapper,
+            @Qualifier("ocrRequestExecutor") ThreadPoolTaskExecutor ocrRequestExecutor
+    ) {
+        this.config = config;
+        this.restClient = restClient;
+        this.ocrResultCache = ocrResultCache;
+        this.ocrImagePreprocessor = ocrImagePreprocessor;
+        this.objectMapper = objectMapper;
+        this.ocrRequestExecutor = ocrRequestExecutor;
+    }
+
+
+    /**
+     * 이미지를 메모리에 통째로 올리지 않는다.
+     * digest 계산과 Vision 요청 본문(Base64) 작성 모두 스트림을 고정 크기 버퍼로 흘려보내는 방식이다.
+     * (multipart 파일은 Tomcat 이 디스크에 두므로 두 번 읽어도 메모리 부담이 없다)
+     */
+    public String detectText(InputStreamSource image) throws IOException {
+        return detectTexts(List.of(image)).getFirst();
+    }
+
+    /**
+     * 여러 장을 한 번에 인식한다. 결과는 입력 순서와 같다.
+     * <p>
+     * 캐시에 없는 이미지만 전처리해서 images:annotate 한 번에 여러 장씩 묶어 보내고,
+     * 묶음이 여러 개면 병렬로 호출한다.
+     */
+    public List<String> detectTexts(List<? extends InputStreamSource> images) throws IOException {
+        var options = config.getOcrBatch();
+        if (images.isEmpty() || images.size() > options.getMaxImages()) {
+            throw new IllegalArgumentException("이미지는 1장 이상 " + options.getMaxImages() + "장 이하로 올려주세요.");
+        }
+
+        String[] digests = new String[images.size()];
+        String[] texts = new String[images.size()];
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            digests[i] = digestOf(images.get(i));
+            texts[i] = ocrResultCache.get(digests[i]);
+            if (texts[i] == null) {
+                misses.add(i);
+            }
+        }
+        if (misses.isEmpty()) {
+            return List.of(texts);
+        }
 
+        // 캐시 키는 원본 digest, 전송은 전처리된 이미지
+        List<InputStreamSource> prepared = ocrImagePreprocessor.preprocessAll(misses.stream().map(images::get).toList());
+        List<String> detected = annotate(prepared);
 
-    public String detectText(byte[] imageBytes) {
+        for (int j = 0; j < misses.size(); j++) {
+            int i = misses.get(j);
+            // 실패한 이미지(null)는 빈 텍스트로 돌려주고, 캐시에는 빈 결과와 함께 남기지 않는다.
+            String text = detected.get(j);
+            texts[i] = text == null ? "" : text;
+            ocrResultCache.put(digests[i], texts[i]);
+        }
+        return List.of(texts);
+    }
 
-        String base64 = Base64.getEncoder().encodeToString(imageBytes);
+    private String digestOf(InputStreamSource image) throws IOException {
+        MessageDigest digest = DigestUtil.sha256();
+        byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+        try (InputStream in = image.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private List<String> annotate(List<InputStreamSource> images) {
+        List<List<InputStreamSource>> chunks = chunk(images);
+        if (chunks.size() == 1) {
+            return callVision(chunks.getFirst());
+        }
 
-        VisionOcrRequest request = new VisionOcrRequest(
-                List.of(
-                        new AnnotateImageRequest(
-                                new VisionImage(base64),
-                                List.of(new VisionFeature("TEXT_DETECTION"))
-                        )
-                )
-        );
+        List<CompletableFuture<List<String>>> calls = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> callVision(chunk), ocrRequestExecutor))
+                .toList();
 
+        List<String> texts = new ArrayList<>(images.size());
+        for (CompletableFuture<List<String>> call : calls) {
+            texts.addAll(join(call));
+        }
+        return texts;
+    }
+
+    /**
+     * 이미지 수와 Base64 페이로드 크기 기준으로 순서를 유지하며 묶는다.
+     */
+    private List<List<InputStreamSource>> chunk(List<InputStreamSource> images) {
+        var options = config.getOcrBatch();
+        int perRequest = Math.min(options.getImagesPerRequest(), VISION_MAX_IMAGES_PER_REQUEST);
+
+        List<List<InputStreamSource>> chunks = new ArrayList<>();
+        List<InputStreamSource> current = new ArrayList<>();
+        long bytes = 0;
+        for (InputStreamSource image : images) {
+            long size = payloadSizeOf(image);
+            if (!current.isEmpty() && (current.size() >= perRequest || bytes + size > options.getMaxRequestBytes())) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                bytes = 0;
+            }
+            current.add(image);
+            bytes += size;
+        }
+        chunks.add(current);
+        return chunks;
+    }
+
+    /**
+     * Base64 인코딩 후 크기. 크기를 알 수 없으면 0 (이미지 수로만 묶음).
+     */
+    private static long payloadSizeOf(InputStreamSource image) {
+        long size = 0;
+        try {
+            if (image instanceof MultipartFile file) {
+                size = file.getSize();
+            } else if (image instanceof Resource resource) {
+                size = resource.contentLength();
+            }
+        } catch (IOException ignored) {
+            // 크기를 모르면 개수 기준으로만 묶는다
+        }
+        return (size + 2) / 3 * 4;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private List<String> callVision(List<InputStreamSource> images) {
         VisionOcrResponse response = restClient.post()
-                .uri(uriBuilder -> uriBuilder
-                        .scheme("https")
-                        .host(GOOGLE_VISION_API_HOST)
+                .uri(UriComponentsBuilder.fromUriString(config.getGoogleVisionBaseUrl())
                         .path(GOOGLE_VISION_API_PATH)
-                        .build())
+                        .build()
+                        .toUri())
                 .contentType(MediaType.APPLICATION_JSON)
                 .header("X-goog-api-key", config.getGoogleApiKey())
-                .body(request)
+                .body(outputStream -> writeRequest(images, outputStream))
                 .retrieve()
                 .body(VisionOcrResponse.class);
 
-        return extractText(response);
+        // responses 는 requests 와 같은 순서로 온다. 실패했거나 응답이 빠진 이미지는 null.
+        List<VisionOcrResult> results = response == null || response.responses() == null
+                ? List.of()
+                : response.responses();
+        List<String> texts = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            VisionOcrResult result = i < results.size() ? results.get(i) : null;
+            if (result != null && result.error() != null) {
+                log.warn("Vision OCR failed for image {}: {} {}", i, result.error().code(), result.error().message());
+                result = null;
+            }
+            texts.add(result == null ? null : extractText(result));
+        }
+        return texts;
     }
 
-    private String extractText(VisionOcrResponse response) {
-        if (response == null || response.responses() == null || response.responses().isEmpty()) {
-            return "";
-        }
+    /**
+     * {"requests":[{"image":{"content":"<base64>"},"features":[...]}, ...]} 를 요청 본문에 직접 쓴다.
+     * Base64 인코딩은 JsonGenerator 가 입력 스트림을 읽으면서 바로 출력하므로 중간 String/byte[] 가 생기지 않는다.
+     */
+    private void writeRequest(List<InputStreamSource> images, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(StreamUtils.nonClosing(outputStream))) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("requests");
+
+            for (InputStreamSource image : images) {
+                try (InputStream in = image.getInputStream()) {
+                    generator.writeStartObject();
+                    generator.writeObjectFieldStart("image");
+                    generator.writeFieldName("content");
+                    generator.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, in, -1);
+                    generator.writeEndObject();
+                    generator.writeObjectField("features", FEATURES);
+                    generator.writeEndObject();
+                }
+            }
 
-        VisionOcrResult result = response.responses().getFirst();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
 
+    private String extractText(VisionOcrResult result) {
         // 1순위: textAnnotations[0]
         if (result.textAnnotations() != null && !result.textAnnotations().isEmpty()) {
             return safe(result.textAnnotations().getFirst().description());
@@ -2,10 +2,13 @@ package org.spark.crossfit.service;
 
 import lombok.RequiredArgsConstructor;
 import org.spark.crossfit.domain.Member;
+import org.spark.crossfit.dto.MyInfo;
 import org.spark.crossfit.dto.UnitType;
+import org.spark.crossfit.dto.command.ChangeMyInfoCommand;
 import org.spark.crossfit.repository.MemberRepository;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -15,15 +18,29 @@ public class MemberService {
 
     private final MemberRepository memberRepository;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
-    public void registerMember(String email, String password, String nickname) {
-        var newMember = Member.builder()
-                .nickname(nickname != null ? nickname : "User" + System.currentTimeMillis())
-                .email(email)
-                .uid(bCryptPasswordEncoder.encode(password))
-                .unitType(UnitType.LB)
-                .build();
-
-        memberRepository.save(newMember);
+    private final MyInfoCache myInfoCache;
+
+    /**
+     * 로그인한 회원을 돌려주고, 없으면 가입시킨다.
+     * <p>
+     * 대부분은 기존 회원이므로 조회 한 번으로 끝낸다. 없을 때만 비밀번호를 해시해 upsert 한 문장으로 가입과 조회를 함께 하며,
+     * 같은 신규 회원의 로그인이 동시에 들어와도 email 유니크 인덱스에서 한 행으로 합쳐진다.
+     */
+    @Transactional
+    public Member loginMember(String email, String password, String nickname) {
+        var existing = memberRepository.findMemberByEmail(email);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        var member = memberRepository.upsertByEmail(
+                email,
+                bCryptPasswordEncoder.encode(password),
+                nickname != null ? nickname : "User" + System.currentTimeMillis(),
+                UnitType.LB.name());
+        // 같은 이메일로 다시 가입한 경우 이전 회원의 정보가 남아 있지 않도록
+        myInfoCache.invalidate(email);
+        return member;
     }
 
     public void updateMember(Member member) {
@@ -34,4 +51,26 @@ public class MemberService {
         return memberRepository.findMemberByEmail(email);
     }
 
+    public boolean existsByEmail(String email) {
+        return memberRepository.existsByEmail(email);
+    }
+
+    public Optional<MyInfo> findMyInfoByEmail(String email) {
+        return memberRepository.findMyInfoByEmail(email);
+    }
+
+    /**
+     * command 에서 null 이 아닌 항목만 바꾼다.
+     *
+     * @param expectedVersion null 이 아니면 현재 버전이 같을 때만 바꾼다.
+     * @return 바꿨으면 true (회원이 없거나 버전이 다르면 false)
+     */
+    @Transactional
+    public boolean updateMyInfo(String email, ChangeMyInfoCommand command, Long expectedVersion) {
+        int updated = memberRepository.updateMyInfo(email,
+                command.nickname(), command.unitType(), command.workoutMinutes(), command.additionalInfo(),
+                expectedVersion);
+        return updated > 0;
+    }
+
 }
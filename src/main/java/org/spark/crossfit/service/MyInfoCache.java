@@ -0,0 +1,51 @@
+package org.spark.crossfit.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.dto.MyInfo;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * 이메일을 키로 하는 MyInfo 캐시.
+ * <p>
+ * 프론트가 페이지를 옮길 때마다 /api/user/me 를 호출하므로, 조회는 캐시에서 끝내고 DB 는 수정/가입 때만 건드린다.
+ * 캐시는 노드마다 따로라 다른 노드에서 수정하면 TTL 이 지날 때까지 이전 값(과 이전 ETag 의 304)이 나갈 수 있다.
+ * 그래서 TTL 을 짧게 둔다. 수정 충돌은 PUT 의 If-Match 가 DB 버전으로 판정하므로 여기서 놓쳐도 덮어쓰지 않는다.
+ * 같은 키의 로드와 갱신(put)은 Caffeine 이 직렬화하므로, 로드 중에 수정이 끝나도 수정된 값이 남는다.
+ * 캐시된 MyInfo 는 여러 요청이 함께 보므로 읽기 전용으로 다룬다.
+ */
+@Component
+public class MyInfoCache {
+
+    private final Cache<String, MyInfo> cache;
+
+    public MyInfoCache(CustomApplicationConfig config, MeterRegistry meterRegistry) {
+        var options = config.getMyInfoCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(options.getMaxEntries())
+                .expireAfterWrite(options.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "member.my-info");
+    }
+
+    /**
+     * loader 가 예외를 던지면(회원 없음 등) 아무것도 캐시하지 않고 그대로 전파한다.
+     */
+    public MyInfo get(String email, Function<String, MyInfo> loader) {
+        return cache.get(email, loader);
+    }
+
+    public void put(MyInfo myInfo) {
+        cache.put(myInfo.getEmail(), myInfo);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+}
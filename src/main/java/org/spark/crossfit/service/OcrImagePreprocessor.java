@@ -0,0 +1,225 @@
+package org.spark.crossfit.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Vision OCR 전송 전에 이미지를 줄이는 전처리 단계.
+ * <p>
+ * 디코딩 → EXIF 회전 적용 → 긴 변 기준 축소 → 흑백 변환 → JPEG 재압축 순서로 처리한다.
+ * 디코딩된 래스터가 이미지당 수십 MB 라서 전용 풀의 스레드 수로 동시 처리량(=메모리)을 제한하고,
+ * 풀이 가득 찼거나 디코딩할 수 없는 형식이면 원본을 그대로 보낸다.
+ */
+@Slf4j
+@Component
+public class OcrImagePreprocessor {
+
+    private final CustomApplicationConfig.OcrPreprocessOptions options;
+    private final ThreadPoolTaskExecutor executor;
+
+    public OcrImagePreprocessor(
+            CustomApplicationConfig config,
+            @Qualifier("ocrPreprocessExecutor") ThreadPoolTaskExecutor executor
+    ) {
+        this.options = config.getOcrPreprocess();
+        this.executor = executor;
+    }
+
+    public InputStreamSource preprocess(InputStreamSource image) {
+        return preprocessAll(List.of(image)).getFirst();
+    }
+
+    /**
+     * 여러 장을 풀에 한꺼번에 넣고 입력 순서대로 결과를 모은다. 이미지별로 실패하면 해당 원본을 그대로 쓴다.
+     */
+    public List<InputStreamSource> preprocessAll(List<? extends InputStreamSource> images) {
+        if (!options.isEnabled()) {
+            return List.copyOf(images);
+        }
+
+        List<CompletableFuture<byte[]>> jobs = new ArrayList<>(images.size());
+        for (InputStreamSource image : images) {
+            try {
+                jobs.add(executor.submitCompletable(() -> transcode(image)));
+            } catch (RejectedExecutionException e) {
+                log.warn("OCR preprocess pool is saturated. Sending original image.");
+                jobs.add(CompletableFuture.completedFuture(null));
+            }
+        }
+
+        List<InputStreamSource> prepared = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            prepared.add(await(jobs.get(i), images.get(i)));
+        }
+        return prepared;
+    }
+
+    private static InputStreamSource await(CompletableFuture<byte[]> job, InputStreamSource original) {
+        try {
+            byte[] jpeg = job.get();
+            return jpeg == null ? original : new ByteArrayResource(jpeg);
+        } catch (ExecutionException e) {
+            log.warn("Failed to preprocess image for OCR. Sending original image.", e.getCause());
+            return original;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return original;
+        }
+    }
+
+    /**
+     * 호출 스레드에서 바로 변환한다. ImageIO 가 읽을 수 없는 형식이면 null.
+     */
+    @Nullable
+    byte[] transcode(InputStreamSource image) throws IOException {
+        int orientation;
+        try (InputStream in = image.getInputStream()) {
+            orientation = ExifOrientation.read(in);
+        }
+
+        BufferedImage decoded = decode(image);
+        if (decoded == null) {
+            return null;
+        }
+
+        int maxLongEdge = options.getMaxLongEdge();
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+        double scale = Math.min(1.0, (double) maxLongEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage gray = rotate(scaleToGray(decoded, targetWidth, targetHeight), orientation);
+        return encodeJpeg(gray, options.getJpegQuality());
+    }
+
+    @Nullable
+    private BufferedImage decode(InputStreamSource image) throws IOException {
+        try (InputStream in = image.getInputStream();
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+
+                // 목표 크기의 2배 이상 큰 이미지는 디코딩 단계에서 솎아내 래스터 메모리를 줄인다.
+                // 2배 여유를 두는 이유는 이후 보간 축소로 글자 획의 계단 현상을 없애기 위함.
+                int subsampling = Math.max(1, longEdge / (options.getMaxLongEdge() * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToGray(BufferedImage source, int targetWidth, int targetHeight) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            // 한 번에 절반보다 많이 줄이면 bilinear 보간에서 획이 끊기므로 절반씩 단계적으로 줄인다.
+            boolean halve = width / 2 >= targetWidth;
+            int nextWidth = halve ? width / 2 : targetWidth;
+            int nextHeight = halve ? Math.max(1, height / 2) : targetHeight;
+
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                g.dispose();
+            }
+
+            current = next;
+            width = nextWidth;
+            height = nextHeight;
+        } while (width != targetWidth);
+        return current;
+    }
+
+    private static BufferedImage rotate(BufferedImage image, int orientation) {
+        if (orientation <= ExifOrientation.NORMAL || orientation > 8) {
+            return image;
+        }
+
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { t.scale(-1, 1); t.translate(-w, 0); }                                      // 좌우 반전
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }                                    // 180도
+            case 4 -> { t.scale(1, -1); t.translate(0, -h); }                                      // 상하 반전
+            case 5 -> { t.rotate(-Math.PI / 2); t.scale(-1, 1); }                                  // transpose
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }                                // 시계 방향 90도
+            case 7 -> { t.scale(-1, 1); t.translate(-h, 0); t.translate(0, w); t.rotate(3 * Math.PI / 2); } // transverse
+            case 8 -> { t.translate(0, w); t.rotate(3 * Math.PI / 2); }                            // 반시계 방향 90도
+            default -> { }
+        }
+
+        boolean swap = orientation >= 5;
+        BufferedImage rotated = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = rotated.createGraphics();
+        try {
+            g.drawImage(image, t, null);
+        } finally {
+            g.dispose();
+        }
+        return rotated;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,278 @@
+package org.spark.crossfit.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.dto.OcrJobResult;
+import org.spark.crossfit.dto.OcrJobStatus;
+import org.spark.crossfit.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 비동기 OCR 작업.
+ * <p>
+ * 업로드는 임시 파일로 옮겨 두고 작업 id 를 바로 돌려준다. 전처리와 Vision 호출은 전용 풀에서 수행하므로
+ * 느린 OCR 이 Tomcat 워커 스레드를 붙잡지 않는다. 결과는 폴링 또는 SSE 로 받는다.
+ */
+@Slf4j
+@Service
+public class OcrJobService {
+
+    private final GoogleVisionOcrService ocrService;
+    private final ThreadPoolTaskExecutor executor;
+    private final CustomApplicationConfig.OcrJobOptions options;
+    private final Path stagingDirectory;
+
+    private final Cache<String, Job> jobs;
+
+    private final Timer waitTimer;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+
+    public OcrJobService(
+            GoogleVisionOcrService ocrService,
+            @Qualifier("ocrJobExecutor") ThreadPoolTaskExecutor executor,
+            CustomApplicationConfig config,
+            MeterRegistry meterRegistry
+    ) {
+        this.ocrService = ocrService;
+        this.executor = executor;
+        this.options = config.getOcrJob();
+        this.stagingDirectory = options.getStagingDirectory() == null || options.getStagingDirectory().isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"))
+                : Path.of(options.getStagingDirectory());
+
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(options.getResultTtl())
+                .build();
+
+        Gauge.builder("ocr.job.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Queued OCR jobs")
+                .register(meterRegistry);
+        Gauge.builder("ocr.job.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Running OCR jobs")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("ocr.job.wait")
+                .description("Time from upload to job start")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.successTimer = latencyTimer(meterRegistry, "success");
+        this.failureTimer = latencyTimer(meterRegistry, "failure");
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("ocr.job.latency")
+                .description("Time from upload to OCR result")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public OcrJobResult submit(MultipartFile file, String ownerId) throws IOException {
+        Job job = new Job(UUID.randomUUID().toString(), ownerId);
+        enqueue(file, job::start).whenComplete((text, e) -> {
+            if (e == null) {
+                finish(job, OcrJobStatus.DONE, text, null);
+            } else {
+                log.warn("OCR job failed: {}", job.id, e);
+                finish(job, OcrJobStatus.FAILED, null, "이미지 인식에 실패했습니다.");
+            }
+        });
+        jobs.put(job.id, job);
+        return job.view();
+    }
+
+    /**
+     * 작업 id 없이 같은 풀에서 OCR 만 비동기로 수행한다. (사진 → 코칭 파이프라인용)
+     */
+    public CompletableFuture<String> detectAsync(MultipartFile file) throws IOException {
+        return enqueue(file, () -> { });
+    }
+
+    private CompletableFuture<String> enqueue(MultipartFile file, Runnable onStart) throws IOException {
+        // multipart 임시 파일은 요청이 끝나면 지워지므로 작업이 끝날 때까지 남도록 옮겨 둔다. (같은 디스크면 rename)
+        Files.createDirectories(stagingDirectory);
+        Path staged = Files.createTempFile(stagingDirectory, "ocr-job-", ".upload");
+        file.transferTo(staged);
+
+        long submittedNanos = System.nanoTime();
+        try {
+            return executor.submitCompletable(() -> {
+                onStart.run();
+                return detect(staged, submittedNanos);
+            });
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(staged);
+            throw new ServiceUnavailableException("OCR 요청이 많습니다. 잠시 후 다시 시도해주세요.");
+        }
+    }
+
+    public OcrJobResult get(String jobId, String ownerId) {
+        return find(jobId, ownerId).view();
+    }
+
+    /**
+     * 작업이 끝나면 result 이벤트 하나를 보내고 닫는다. 이미 끝난 작업이면 바로 보낸다.
+     */
+    public SseEmitter subscribe(String jobId, String ownerId) {
+        Job job = find(jobId, ownerId);
+        SseEmitter emitter = new SseEmitter(options.getSseTimeout().toMillis());
+        emitter.onCompletion(() -> job.unsubscribe(emitter));
+        emitter.onTimeout(() -> {
+            job.unsubscribe(emitter);
+            emitter.complete();
+        });
+        emitter.onError(e -> job.unsubscribe(emitter));
+
+        if (!job.subscribe(emitter)) {
+            sendResult(emitter, job.view());
+        }
+        return emitter;
+    }
+
+    private Job find(String jobId, String ownerId) {
+        Job job = jobs.getIfPresent(jobId);
+        // 다른 사용자의 작업은 존재 여부도 드러내지 않는다.
+        if (job == null || !job.ownerId.equals(ownerId)) {
+            throw new IllegalArgumentException("OCR 작업을 찾을 수 없습니다.");
+        }
+        return job;
+    }
+
+    private String detect(Path staged, long submittedNanos) throws IOException {
+        waitTimer.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+        try {
+            String text = ocrService.detectText(new FileSystemResource(staged));
+            successTimer.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+            return text;
+        } catch (IOException | RuntimeException e) {
+            failureTimer.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+            throw e;
+        } finally {
+            deleteQuietly(staged);
+        }
+    }
+
+    private void finish(Job job, OcrJobStatus status, String text, String error) {
+        List<SseEmitter> subscribers = job.complete(status, text, error);
+        // 결과 보관 시간은 완료 시점부터 센다.
+        jobs.put(job.id, job);
+
+        OcrJobResult result = job.view();
+        for (SseEmitter emitter : subscribers) {
+            sendResult(emitter, result);
+        }
+    }
+
+    private static void sendResult(SseEmitter emitter, OcrJobResult result) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(result));
+            emitter.complete();
+        } catch (Exception ignored) {
+            // 이미 끊긴 구독자는 폴링으로 결과를 받을 수 있다
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete staged OCR upload: {}", file, e);
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String ownerId;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<SseEmitter> subscribers = new ArrayList<>();
+        private volatile OcrJobStatus status = OcrJobStatus.QUEUED;
+        private volatile String text;
+        private volatile String error;
+
+        private Job(String id, String ownerId) {
+            this.id = id;
+            this.ownerId = ownerId;
+        }
+
+        void start() {
+            status = OcrJobStatus.RUNNING;
+        }
+
+        /**
+         * 아직 진행 중이면 구독자로 등록하고 true, 이미 끝났으면 false.
+         */
+        boolean subscribe(SseEmitter emitter) {
+            lock.lock();
+            try {
+                if (isFinished()) {
+                    return false;
+                }
+                subscribers.add(emitter);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void unsubscribe(SseEmitter emitter) {
+            lock.lock();
+            try {
+                subscribers.remove(emitter);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 결과를 기록하고 알려야 할 구독자를 돌려준다. 전송은 잠금 밖에서 한다.
+         */
+        List<SseEmitter> complete(OcrJobStatus status, String text, String error) {
+            lock.lock();
+            try {
+                this.text = text;
+                this.error = error;
+                this.status = status;
+                List<SseEmitter> pending = List.copyOf(subscribers);
+                subscribers.clear();
+                return pending;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isFinished() {
+            return status == OcrJobStatus.DONE || status == OcrJobStatus.FAILED;
+        }
+
+        OcrJobResult view() {
+            return OcrJobResult.builder()
+                    .jobId(id)
+                    .status(status)
+                    .detectedText(text)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.spark.crossfit.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 이미지 바이트 digest(SHA-256) 를 키로 하는 OCR 결과 캐시.
+ * <p>
+ * 1차는 텍스트 크기 기준으로 상한이 있는 메모리 캐시, 2차는 재시작 후에도 남는 디스크 캐시(선택)이다.
+ * 디스크에서 찾은 결과는 메모리로 올린다. 디스크 캐시는 주기적으로 diskMaxAge 동안 쓰이지 않은 파일을 지우고,
+ * 그래도 diskMaxBytes 를 넘으면 오래 쓰이지 않은 파일부터 지운다. (읽을 때 수정 시각을 갱신해 LRU 순서로 쓴다)
+ * <p>
+ * 빈 결과는 저장하지 않는다. Vision 이 이미지 단위로 실패해도 빈 텍스트가 오므로, 저장하면 같은 이미지는 다시 인식되지 않는다.
+ */
+@Slf4j
+@Component
+public class OcrResultCache implements DisposableBean {
+
+    // 쓰다가 죽어 남은 임시 파일로 볼 나이
+    private static final Duration STALE_TEMP_FILE = Duration.ofMinutes(1);
+
+    private record CachedFile(Path path, long size, FileTime lastUsed) {}
+
+    private final Cache<String, String> memory;
+    @Nullable
+    private final Path diskDirectory;
+    private final long diskMaxBytes;
+    private final Duration diskMaxAge;
+    @Nullable
+    private final ScheduledExecutorService pruner;
+
+    private final Counter diskHits;
+    private final Counter diskMisses;
+    private final Counter diskPruned;
+
+    public OcrResultCache(CustomApplicationConfig config, MeterRegistry meterRegistry) {
+        var options = config.getOcrCache();
+
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(options.getMaxBytes())
+                // String 은 한글이 섞이면 UTF-16 이므로 문자당 2바이트 + 키(64자 hex)
+                .weigher((String key, String text) -> 2 * (key.length() + text.length()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "ocr.result");
+
+        this.diskDirectory = options.getDiskDirectory() == null || options.getDiskDirectory().isBlank()
+                ? null
+                : Path.of(options.getDiskDirectory());
+        this.diskMaxBytes = options.getDiskMaxBytes();
+        this.diskMaxAge = options.getDiskMaxAge();
+        this.diskHits = Counter.builder("ocr.result.disk").tag("result", "hit").register(meterRegistry);
+        this.diskMisses = Counter.builder("ocr.result.disk").tag("result", "miss").register(meterRegistry);
+        this.diskPruned = Counter.builder("ocr.result.disk.pruned").register(meterRegistry);
+
+        if (diskDirectory == null) {
+            this.pruner = null;
+            return;
+        }
+        this.pruner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ocr-cache-pruner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = options.getDiskPruneInterval().toMillis();
+        pruner.scheduleWithFixedDelay(this::prune, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Nullable
+    public String get(String digest) {
+        String text = memory.getIfPresent(digest);
+        if (text != null || diskDirectory == null) {
+            return text;
+        }
+
+        Path file = fileOf(digest);
+        try {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+            diskHits.increment();
+            touch(file);
+            memory.put(digest, text);
+            return text;
+        } catch (NoSuchFileException e) {
+            diskMisses.increment();
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read OCR cache file: {}", file, e);
+            diskMisses.increment();
+            return null;
+        }
+    }
+
+    public void put(String digest, String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        memory.put(digest, text);
+        if (diskDirectory == null) {
+            return;
+        }
+
+        Path file = fileOf(digest);
+        try {
+            // 임시 파일에 쓴 뒤 rename 해서 읽는 쪽이 반쯤 쓰인 파일을 보지 않게 한다.
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), digest, ".tmp");
+            Files.writeString(tmp, text, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write OCR cache file: {}", file, e);
+        }
+    }
+
+    /**
+     * 디스크 캐시를 상한 안으로 줄이고 지운 파일 수를 반환한다.
+     */
+    int prune() {
+        if (diskDirectory == null) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        FileTime expiredBefore = FileTime.from(now.minus(diskMaxAge));
+        FileTime staleTempBefore = FileTime.from(now.minus(STALE_TEMP_FILE));
+
+        List<CachedFile> files = new ArrayList<>();
+        long totalBytes = 0;
+        int removed = 0;
+        try (Stream<Path> paths = Files.walk(diskDirectory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attributes = attributesOf(path);
+                if (attributes == null || !attributes.isRegularFile()) {
+                    continue;
+                }
+                boolean temp = path.getFileName().toString().endsWith(".tmp");
+                if (temp ? attributes.lastModifiedTime().compareTo(staleTempBefore) < 0
+                        : attributes.lastModifiedTime().compareTo(expiredBefore) < 0) {
+                    removed += delete(path);
+                } else if (!temp) {
+                    files.add(new CachedFile(path, attributes.size(), attributes.lastModifiedTime()));
+                    totalBytes += attributes.size();
+                }
+            }
+
+            files.sort(Comparator.comparing(CachedFile::lastUsed));
+            for (int i = 0; i < files.size() && totalBytes > diskMaxBytes; i++) {
+                removed += delete(files.get(i).path());
+                totalBytes -= files.get(i).size();
+            }
+        } catch (NoSuchFileException e) {
+            // 아직 한 번도 쓰지 않았다.
+        } catch (IOException | UncheckedIOException e) {
+            // 예외가 밖으로 나가면 스케줄이 취소되므로 로그만 남긴다.
+            log.warn("Failed to prune OCR cache directory: {}", diskDirectory, e);
+        }
+        diskPruned.increment(removed);
+        return removed;
+    }
+
+    @Nullable
+    private static BasicFileAttributes attributesOf(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // 순회 중에 다른 요청이 교체했다.
+            return null;
+        }
+    }
+
+    private static int delete(Path path) throws IOException {
+        return Files.deleteIfExists(path) ? 1 : 0;
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // 정리 순서가 조금 어긋날 뿐이다.
+            log.debug("Failed to touch OCR cache file: {}", file, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (pruner != null) {
+            pruner.shutdownNow();
+        }
+    }
+
+    private Path fileOf(String digest) {
+        // 한 디렉토리에 파일이 몰리지 않도록 앞 2글자로 분산
+        return diskDirectory.resolve(digest.substring(0, 2)).resolve(digest + ".txt");
+    }
+}
@@ -0,0 +1,77 @@
+package org.spark.crossfit.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.spark.crossfit.ai.AccessoryAgentOrchestrator;
+import org.spark.crossfit.dto.OcrResult;
+import org.spark.crossfit.dto.command.ChatCommand;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * WOD 사진 한 장으로 OCR → 코칭 스트리밍까지 한 번의 SSE 연결에서 처리한다.
+ * <p>
+ * 업로드를 OCR 작업 풀에 넣고 바로 반환하며, 인식이 끝나면 먼저 ocr 이벤트로 텍스트를 보낸 뒤
+ * 같은 연결로 코치 답변을 이어서 스트리밍한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoChatService {
+
+    private final OcrJobService ocrJobService;
+    private final CrossfitAdvisorService crossfitAdvisorService;
+    private final AccessoryAgentOrchestrator orchestrator;
+
+    public void stream(
+            String conversationId,
+            MultipartFile file,
+            @Nullable String message,
+            String userId,
+            SseEmitter emitter
+    ) throws IOException {
+        ocrJobService.detectAsync(file).whenComplete((text, e) -> {
+            if (e != null) {
+                log.warn("OCR failed for photo chat. conversationId={}", conversationId, e);
+                safeSend(emitter, "error", "이미지 인식에 실패했습니다.");
+                emitter.complete();
+                return;
+            }
+            // whenComplete 안에서 던진 예외는 아무도 받지 않는다. 타임아웃 없는 emitter 라 닫지 않으면 클라이언트가 계속 기다린다.
+            try {
+                if (!safeSend(emitter, "ocr", new OcrResult(text))) {
+                    // 클라이언트가 이미 떠났으면 LLM 을 호출하지 않는다.
+                    emitter.complete();
+                    return;
+                }
+                if (text.isBlank()) {
+                    safeSend(emitter, "error", "사진에서 글자를 찾지 못했습니다.");
+                    emitter.complete();
+                    return;
+                }
+
+                String prompt = message == null || message.isBlank() ? text : text + "\n\n" + message;
+                // OCR 작업 스레드에는 SecurityContext 가 없으므로 요청 스레드에서 꺼낸 userId 로 조회한다.
+                orchestrator.stream(conversationId, new ChatCommand(prompt), () -> crossfitAdvisorService.getMyInfo(userId), emitter);
+            } catch (RuntimeException failure) {
+                log.warn("Photo chat failed after OCR. conversationId={}", conversationId, failure);
+                safeSend(emitter, "error", "처리 중 문제가 생겼습니다.");
+                emitter.complete();
+            }
+        });
+    }
+
+    private boolean safeSend(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (Exception ignored) {
+            // 이미 끊겼거나 커밋 상태면 무시
+            return false;
+        }
+    }
+}
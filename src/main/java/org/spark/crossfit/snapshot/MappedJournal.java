@@ -0,0 +1,376 @@
+package org.spark.crossfit.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 스냅샷 파일 + 메모리 매핑 저널.
+ * <p>
+ * 상태를 바꾸는 연산은 저널에 [길이][CRC32C][내용] 레코드로 덧붙이고, 주기적으로 전체 상태를 스냅샷 파일로 새로 쓴 뒤
+ * 스냅샷에 담긴 앞부분의 저널을 버린다. 시작할 때는 스냅샷을 읽고 그 뒤의 저널을 이어서 재생한다.
+ * <p>
+ * 스냅샷은 세 단계로 쓴다. 잠금 안에서 상태를 복사하며 {@link #checkpoint()} 를 받고, 잠금 밖에서
+ * {@link #writeSnapshot} 으로 파일을 쓰는 동안 저널에는 계속 덧붙이고, 다시 잠금 안에서 {@link #install} 로 교체한다.
+ * 스냅샷 파일에는 어느 세대의 어느 위치까지 담았는지를 남기므로, 어느 단계에서 죽어도 스냅샷 이후의 기록만 재생한다.
+ * <p>
+ * 저널은 매핑된 페이지에 바로 쓰므로 프로세스가 죽어도 OS 페이지 캐시에 남는다. 쓰다 끊긴 마지막 레코드는 CRC 가 맞지 않아
+ * 재생에서 빠진다. (CRC 에 세대 번호를 섞어 이전 세대의 레코드 잔해도 걸러낸다)
+ * <p>
+ * {@link #writeSnapshot} 외에는 스레드 안전하지 않다. 호출한 쪽에서 상태 변경과 기록을 같은 잠금으로 묶어야 한다.
+ */
+public class MappedJournal implements Closeable {
+
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordReader {
+        void read(DataInput in) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordSink {
+        void append(RecordWriter record) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface SnapshotSource {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+
+    /**
+     * 스냅샷이 담은 저널의 끝. 이 세대의 이 위치 이후 레코드만 스냅샷 뒤에 재생한다.
+     */
+    public record Checkpoint(long generation, int position) {}
+
+    private static final int MAGIC = 0x4A524E4C; // "JRNL"
+    private static final int SNAPSHOT_MAGIC = 0x4A534E50; // "JSNP"
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path snapshotFile;
+    private final String name;
+    private final FileChannel channel;
+    private final MappedByteBuffer journal;
+    private long generation;
+
+    private final Buffer buffer = new Buffer();
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private final CRC32C crc = new CRC32C();
+
+    public MappedJournal(Path directory, String name, int journalBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve(name + ".snapshot");
+        this.name = name;
+        // 쓰다 죽은 임시 스냅샷 정리
+        try (var leftovers = Files.newDirectoryStream(directory, name + ".snapshot*.tmp")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        this.channel = FileChannel.open(directory.resolve(name + ".journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // 설정이 줄었더라도 이전에 기록된 뒷부분을 잃지 않도록 기존 파일 크기 이상으로 매핑한다.
+        long size = Math.max(journalBytes, channel.size());
+        this.journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * 스냅샷과 저널의 레코드를 순서대로 넘기고, 이후 append 할 위치를 정한다.
+     *
+     * @return 재생한 레코드 수
+     */
+    public long replay(RecordReader reader) throws IOException {
+        long records = 0;
+        // 스냅샷이 없으면 0 세대 저널을 처음부터 재생한다.
+        Checkpoint base = new Checkpoint(0, HEADER_BYTES);
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a snapshot file: " + snapshotFile);
+                }
+                base = new Checkpoint(in.readLong(), in.readInt());
+                int length;
+                while ((length = in.readInt()) > 0) {
+                    int checksum = in.readInt();
+                    byte[] payload = in.readNBytes(length);
+                    // 스냅샷은 다 쓴 뒤 원자적으로 교체하므로 여기서 깨진 건 실제 손상이다.
+                    if (payload.length != length || checksum(crc, base.generation(), payload, 0, length) != checksum) {
+                        throw new IOException("Corrupted snapshot record in " + snapshotFile);
+                    }
+                    reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+                    records++;
+                }
+            } catch (EOFException e) {
+                throw new IOException("Truncated snapshot file: " + snapshotFile, e);
+            }
+        }
+
+        long journalGeneration = journal.getInt(0) == MAGIC ? journal.getLong(Integer.BYTES) : -1;
+        int position;
+        if (journalGeneration == base.generation()) {
+            // 스냅샷을 교체한 뒤 앞부분을 버리기 전에 멈췄거나, 뒤에 붙은 기록이 커서 옮기지 않은 저널
+            position = base.position();
+        } else if (journalGeneration == base.generation() + 1) {
+            position = HEADER_BYTES;
+        } else {
+            // 새 파일이거나 이미 스냅샷에 반영된 이전 세대의 저널
+            generation = base.generation() + 1;
+            reset();
+            return records;
+        }
+        generation = journalGeneration;
+
+        while (position + RECORD_HEADER_BYTES <= journal.capacity()) {
+            int length = journal.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > journal.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            journal.get(position + RECORD_HEADER_BYTES, payload);
+            if (checksum(crc, generation, payload, 0, length) != journal.getInt(position + Integer.BYTES)) {
+                // 기록 도중 끊긴 꼬리
+                break;
+            }
+            reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+            records++;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        journal.position(position);
+        return records;
+    }
+
+    /**
+     * @return 저널에 남은 공간이 부족하면 false. 호출한 쪽에서 {@link #rewrite} 로 비운 뒤 다시 시도한다.
+     */
+    public boolean append(RecordWriter record) throws IOException {
+        buffer.reset();
+        record.write(out);
+        int length = buffer.size();
+        int position = journal.position();
+        int end = position + RECORD_HEADER_BYTES + length;
+        if (end + Integer.BYTES > journal.capacity()) {
+            return false;
+        }
+
+        // 길이를 마지막에 써서, 중간에 끊기면 레코드가 통째로 보이지 않게 한다.
+        journal.putInt(end, 0);
+        journal.put(position + RECORD_HEADER_BYTES, buffer.array(), 0, length);
+        journal.putInt(position + Integer.BYTES, checksum(crc, generation, buffer.array(), 0, length));
+        journal.putInt(position, length);
+        journal.position(end);
+        return true;
+    }
+
+    /**
+     * 지금까지 덧붙인 저널의 끝. 스냅샷에 담을 상태를 복사할 때 같은 잠금 안에서 받는다.
+     */
+    public Checkpoint checkpoint() {
+        return new Checkpoint(generation, journal.position());
+    }
+
+    /**
+     * checkpoint 시점의 상태를 임시 파일에 쓴다. 저널을 건드리지 않으므로 잠금 없이 호출해도 된다.
+     * 반환한 파일은 {@link #install} 로 반영한다.
+     */
+    public Path writeSnapshot(Checkpoint checkpoint, SnapshotSource source) throws IOException {
+        Path temp = Files.createTempFile(snapshotFile.getParent(), name + ".snapshot", ".tmp");
+        // append 와 동시에 돌 수 있으므로 버퍼와 CRC 를 따로 쓴다.
+        Buffer recordBuffer = new Buffer();
+        DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+        CRC32C recordCrc = new CRC32C();
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream snapshot = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16));
+            snapshot.writeInt(SNAPSHOT_MAGIC);
+            snapshot.writeLong(checkpoint.generation());
+            snapshot.writeInt(checkpoint.position());
+            source.writeTo(record -> {
+                recordBuffer.reset();
+                record.write(recordOut);
+                snapshot.writeInt(recordBuffer.size());
+                snapshot.writeInt(checksum(recordCrc, checkpoint.generation(), recordBuffer.array(), 0, recordBuffer.size()));
+                snapshot.write(recordBuffer.array(), 0, recordBuffer.size());
+            });
+            snapshot.writeInt(0);
+            snapshot.flush();
+            file.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * {@link #writeSnapshot} 으로 쓴 파일을 스냅샷으로 교체하고, 스냅샷에 담긴 앞부분의 저널을 버린다.
+     * 그사이 {@link #rewrite} 로 저널이 이미 비워졌으면 파일을 버리고 false.
+     */
+    public boolean install(Checkpoint checkpoint, Path written) throws IOException {
+        if (checkpoint.generation() != generation || checkpoint.position() > journal.position()) {
+            Files.deleteIfExists(written);
+            return false;
+        }
+        Files.move(written, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        compact(checkpoint.position());
+        return true;
+    }
+
+    /**
+     * 전체 상태를 스냅샷으로 쓰고 저널을 비운다. 쓰는 동안 저널에 덧붙일 수 없으므로 저널이 가득 찼을 때나 종료할 때만 쓴다.
+     */
+    public void rewrite(SnapshotSource source) throws IOException {
+        Checkpoint checkpoint = checkpoint();
+        install(checkpoint, writeSnapshot(checkpoint, source));
+    }
+
+    public int usedBytes() {
+        return journal.position();
+    }
+
+    public int capacityBytes() {
+        return journal.capacity();
+    }
+
+    /**
+     * cut 앞의 레코드를 버린다. 뒤에 남은 레코드는 다음 세대로 앞으로 옮긴다.
+     * 옮길 자리가 cut 앞에 있을 때만 옮기고 세대 번호는 마지막에 바꾸므로, 옮기다 죽어도 스냅샷의 체크포인트(이전 세대, cut)부터
+     * 원래 레코드를 그대로 재생할 수 있다. 자리가 모자라면 옮기지 않고 다음 스냅샷 때 다시 시도한다.
+     */
+    private void compact(int cut) {
+        int end = journal.position();
+        int tail = end - cut;
+        if (HEADER_BYTES + tail + Integer.BYTES > cut) {
+            if (tail == 0) {
+                generation++;
+                reset();
+            }
+            return;
+        }
+
+        long next = generation + 1;
+        byte[] records = new byte[tail];
+        journal.get(cut, records);
+        ByteBuffer moved = ByteBuffer.wrap(records);
+        int position = HEADER_BYTES;
+        while (moved.hasRemaining()) {
+            int length = moved.getInt();
+            moved.getInt();
+            int payload = moved.position();
+            journal.put(position + RECORD_HEADER_BYTES, records, payload, length);
+            journal.putInt(position + Integer.BYTES, checksum(crc, next, records, payload, length));
+            journal.putInt(position, length);
+            position += RECORD_HEADER_BYTES + length;
+            moved.position(payload + length);
+        }
+        journal.putInt(position, 0);
+        journal.putLong(Integer.BYTES, next);
+        journal.position(position);
+        journal.force();
+        generation = next;
+    }
+
+    private void reset() {
+        journal.putInt(HEADER_BYTES, 0);
+        journal.putInt(0, MAGIC);
+        journal.putLong(Integer.BYTES, generation);
+        journal.position(HEADER_BYTES);
+        journal.force();
+    }
+
+    private static int checksum(CRC32C crc, long generation, byte[] payload, int offset, int length) {
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (generation >>> shift));
+        }
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.force();
+        channel.close();
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        // writeUTF 는 64KB 제한이 있어 길이 + UTF-8 로 쓴다. (null 은 -1)
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ByteArrayOutputStream 과 같지만 동기화하지 않는다. (DataOutputStream 이 바이트 단위로 여러 번 호출함)
+     */
+    private static final class Buffer extends OutputStream {
+        private byte[] buf = new byte[256];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        int size() {
+            return count;
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+-- 기존에 수동으로 만든 테이블이 있는 DB 에서도 그대로 적용되도록 IF NOT EXISTS 로 작성한다. (baseline-version: 0)
+CREATE TABLE IF NOT EXISTS member (
+    id              BIGSERIAL PRIMARY KEY,
+    email           VARCHAR(255) NOT NULL,
+    uid             VARCHAR(255),
+    nickname        VARCHAR(255),
+    unit_type       VARCHAR(16),
+    workout_minutes INTEGER,
+    additional_info VARCHAR(255)
+);
+
+-- 마이그레이션 도입 전의 테이블에는 email 유니크 제약이 없어, 같은 회원의 로그인이 동시에 들어오면 중복 행이 생겼다.
+-- 그대로 두면 아래 유니크 인덱스 생성이 실패해 기동되지 않으므로, email 마다 가장 먼저 가입한 행(가장 작은 id)만 남긴다.
+DELETE FROM member m
+USING member kept
+WHERE m.email = kept.email
+  AND m.id > kept.id;
+
+-- 프로필 조회/수정/OAuth 로그인이 모두 email 로 찾는다.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_member_email ON member (email);
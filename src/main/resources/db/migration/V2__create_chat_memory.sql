@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS chat_memory (
+    id              BIGSERIAL PRIMARY KEY,
+    conversation_id VARCHAR(100) NOT NULL,
+    message_type    VARCHAR(16)  NOT NULL,
+    content         TEXT         NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_memory_conversation_id ON chat_memory (conversation_id, id);
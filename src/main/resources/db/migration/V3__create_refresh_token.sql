@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS refresh_token (
+    session_id VARCHAR(64)  NOT NULL,
+    jti        VARCHAR(64)  NOT NULL,
+    user_id    VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMPTZ  NOT NULL,
+    revoked_at TIMESTAMPTZ,
+    PRIMARY KEY (session_id, jti)
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_token_user_id ON refresh_token (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_expires_at ON refresh_token (expires_at);
@@ -0,0 +1,2 @@
+-- 프로필 수정의 낙관적 잠금(@Version)과 /api/user/me 의 ETag 에 쓴다. 기존 행은 0 에서 시작한다.
+ALTER TABLE member ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
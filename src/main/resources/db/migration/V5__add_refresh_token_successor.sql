@@ -0,0 +1,2 @@
+-- 회전으로 폐기된 토큰에 그때 발급한 jti 를 남겨, 유예 시간 안의 중복 갱신을 어느 인스턴스에서든 알아본다.
+ALTER TABLE refresh_token ADD COLUMN IF NOT EXISTS successor_jti VARCHAR(64);
@@ -0,0 +1,6 @@
+-- 대화 요약은 대화당 1행만 두고 갱신한다. 요약이 바뀔 때 chat_memory 의 대화 기록을 지우고 다시 쓰지 않기 위함
+CREATE TABLE IF NOT EXISTS chat_memory_summary (
+    conversation_id VARCHAR(100) PRIMARY KEY,
+    content         TEXT         NOT NULL,
+    updated_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
@@ -0,0 +1,159 @@
+package org.spark.crossfit.ai.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcWriteBehindChatMemoryRepositoryTest {
+
+    @Test
+    void repeatedMessagesAreAllPersisted() throws Exception {
+        RecordingJdbcTemplate db = new RecordingJdbcTemplate();
+        JdbcWriteBehindChatMemoryRepository repository = new JdbcWriteBehindChatMemoryRepository(db, options(100));
+
+        repository.append("c1", 0, List.of(new UserMessage("ok"), new AssistantMessage("좋아요")));
+        // 앞의 두 턴을 잘라내고 똑같은 두 턴을 붙인다. 윈도우만 보면 바뀐 게 없어 보인다.
+        repository.append("c1", 2, List.of(new UserMessage("ok"), new AssistantMessage("좋아요")));
+        repository.destroy();
+
+        assertEquals(List.of("c1/USER/ok", "c1/ASSISTANT/좋아요", "c1/USER/ok", "c1/ASSISTANT/좋아요"), db.rows);
+        assertEquals(List.of(), db.deletes);
+        assertEquals(List.of(new UserMessage("ok"), new AssistantMessage("좋아요")), repository.findByConversationId("c1"));
+    }
+
+    @Test
+    void trimmedTurnsStayInTheDatabase() throws Exception {
+        RecordingJdbcTemplate db = new RecordingJdbcTemplate();
+        JdbcWriteBehindChatMemoryRepository repository = new JdbcWriteBehindChatMemoryRepository(db, options(100));
+
+        repository.saveAll("c1", List.of(new SystemMessage("요약"), new UserMessage("u1"), new AssistantMessage("a1")));
+        repository.append("c1", 2, List.of(new UserMessage("u2"), new AssistantMessage("a2")));
+        repository.destroy();
+
+        // 요약은 남기고 그 뒤 턴만 잘라낸다. DB 에는 잘라낸 턴도 그대로 있다.
+        assertEquals(List.of(new SystemMessage("요약"), new UserMessage("u2"), new AssistantMessage("a2")),
+                repository.findByConversationId("c1"));
+        assertEquals(List.of("c1"), db.deletes);
+        assertEquals(List.of("c1/요약"), db.summaries);
+        assertEquals(List.of("c1/USER/u1", "c1/ASSISTANT/a1", "c1/USER/u2", "c1/ASSISTANT/a2"), db.rows);
+    }
+
+    @Test
+    void summaryReplacementUpdatesOnlyTheSummaryRow() throws Exception {
+        RecordingJdbcTemplate db = new RecordingJdbcTemplate();
+        CustomApplicationConfig.ChatMemoryOptions options = options(100);
+        options.setMaxTokens(50);
+        options.setCompactToTokens(30);
+        JdbcWriteBehindChatMemoryRepository repository = new JdbcWriteBehindChatMemoryRepository(db, options);
+        // 요약을 바로 반영하도록 같은 스레드에서 실행한다.
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(repository, new FixedSummarizer(), Runnable::run, options);
+
+        for (int i = 1; i <= 4; i++) {
+            memory.add("c1", List.of(new UserMessage("u" + i + " " + "x".repeat(20)), new AssistantMessage("a" + i)));
+        }
+        repository.destroy();
+
+        // 요약이 바뀌어도 대화 기록은 지우지 않고, 각 턴은 한 번씩만 기록된다.
+        assertEquals(List.of(), db.deletes);
+        assertEquals(8, db.rows.size());
+        assertEquals(8, db.rows.stream().distinct().count());
+        assertTrue(db.summaries.stream().allMatch(summary -> summary.startsWith("c1/" + TokenBudgetChatMemory.SUMMARY_PREFIX)));
+        assertEquals(TokenBudgetChatMemory.SUMMARY_PREFIX + "요약",
+                repository.findByConversationId("c1").getFirst().getText());
+    }
+
+    @Test
+    void writesDroppedOnAFullQueueAreCounted() throws Exception {
+        RecordingJdbcTemplate db = new RecordingJdbcTemplate();
+        db.blockInserts = new CountDownLatch(1);
+        JdbcWriteBehindChatMemoryRepository repository = new JdbcWriteBehindChatMemoryRepository(db, options(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repository.bindTo(registry);
+
+        repository.append("c1", 0, List.of(new UserMessage("u1")));
+        // writer 가 첫 insert 에서 멈춘 동안 큐(용량 1)를 넘겨 쓴다.
+        assertTrue(db.insertStarted.await(5, TimeUnit.SECONDS));
+        repository.append("c1", 0, List.of(new AssistantMessage("a1"), new UserMessage("u2"), new AssistantMessage("a2")));
+
+        assertEquals(2, registry.get("chat.memory.writes.dropped").functionCounter().count());
+        db.blockInserts.countDown();
+        repository.destroy();
+        assertEquals(List.of("c1/USER/u1", "c1/ASSISTANT/a1"), db.rows);
+    }
+
+    private static CustomApplicationConfig.ChatMemoryOptions options(int queueCapacity) {
+        CustomApplicationConfig.ChatMemoryOptions options = new CustomApplicationConfig.ChatMemoryOptions();
+        options.setWriteQueueCapacity(queueCapacity);
+        return options;
+    }
+
+    private static class FixedSummarizer extends ConversationSummarizer {
+        FixedSummarizer() {
+            super(null, "", 800);
+        }
+
+        @Override
+        public String summarize(String previousSummary, List<Message> evicted) {
+            return "요약";
+        }
+    }
+
+    /**
+     * insert 된 행과 delete 된 대화를 순서대로 기록한다. 조회는 항상 빈 결과.
+     */
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<String> rows = new CopyOnWriteArrayList<>();
+        final List<String> deletes = new CopyOnWriteArrayList<>();
+        final List<String> summaries = new CopyOnWriteArrayList<>();
+        final CountDownLatch insertStarted = new CountDownLatch(1);
+        volatile CountDownLatch blockInserts;
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.contains("DELETE")) {
+                deletes.add((String) args[0]);
+                return 1;
+            }
+            if (sql.contains("chat_memory_summary")) {
+                summaries.add(args[0] + "/" + args[1]);
+                return 1;
+            }
+            insertStarted.countDown();
+            if (blockInserts != null) {
+                try {
+                    blockInserts.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (int i = 0; i < args.length; i += 4) {
+                rows.add(args[i] + "/" + args[i + 1] + "/" + args[i + 2]);
+            }
+            return args.length / 4;
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            return List.of();
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            return List.of();
+        }
+    }
+}
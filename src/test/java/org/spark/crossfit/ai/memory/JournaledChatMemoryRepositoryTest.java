@@ -0,0 +1,112 @@
+package org.spark.crossfit.ai.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.snapshot.MappedJournal;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 프로세스가 죽는 상황은 destroy 없이 같은 디렉터리로 새 저장소를 여는 것으로 흉내 낸다.
+ */
+class JournaledChatMemoryRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (MappedJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void restoresAppendedTurnsAndSummaryAfterACrash() throws IOException {
+        JournaledChatMemoryRepository repository = open(1 << 16);
+        repository.append("c1", 0, List.of(new UserMessage("21-15-9"), new AssistantMessage("thrusters 먼저")));
+        repository.append("c1", 1, List.of(new UserMessage("pull-ups 는?"), new AssistantMessage("밴드 사용")));
+        repository.replaceSummary("c1", new SystemMessage("21-15-9 분석"));
+        repository.append("c2", 0, List.of(new UserMessage("hello")));
+        repository.deleteByConversationId("c2");
+
+        JournaledChatMemoryRepository restored = open(1 << 16);
+        assertEquals(repository.findByConversationId("c1"), restored.findByConversationId("c1"));
+        assertEquals(List.of(new SystemMessage("21-15-9 분석"), new AssistantMessage("thrusters 먼저"),
+                new UserMessage("pull-ups 는?"), new AssistantMessage("밴드 사용")), restored.findByConversationId("c1"));
+        assertEquals(List.of(), restored.findByConversationId("c2"));
+    }
+
+    @Test
+    void journalsOnlyTheAppendedTurns() throws IOException {
+        JournaledChatMemoryRepository repository = open(1 << 20);
+        List<Message> turns = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            turns.add(new UserMessage("긴 질문 ".repeat(40) + i));
+        }
+        repository.append("c1", 0, turns);
+
+        int before = journals.getLast().usedBytes();
+        repository.append("c1", 1, List.of(new UserMessage("ok")));
+        int recorded = journals.getLast().usedBytes() - before;
+
+        // 윈도우 전체(수십 KB)가 아니라 새 턴 하나만 기록된다.
+        assertTrue(recorded < 64, "recorded " + recorded + " bytes");
+    }
+
+    @Test
+    void fullJournalIsCompactedIntoASnapshot() throws IOException {
+        JournaledChatMemoryRepository repository = open(1024);
+        for (int i = 0; i < 200; i++) {
+            repository.append("c" + (i % 10), i < 50 ? 0 : 1, List.of(new UserMessage("turn " + i)));
+        }
+
+        JournaledChatMemoryRepository restored = open(1024);
+        for (int c = 0; c < 10; c++) {
+            assertEquals(repository.findByConversationId("c" + c), restored.findByConversationId("c" + c));
+        }
+    }
+
+    @Test
+    void writesDuringASnapshotSurviveACrash() throws Exception {
+        JournaledChatMemoryRepository repository = open(1 << 20);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 2000; i++) {
+                repository.append("c" + (i % 20), 0, List.of(new UserMessage("turn " + i)));
+            }
+        });
+        while (!writer.isDone()) {
+            repository.snapshot();
+        }
+        writer.join();
+
+        JournaledChatMemoryRepository restored = open(1 << 20);
+        for (int c = 0; c < 20; c++) {
+            assertEquals(100, restored.findByConversationId("c" + c).size());
+            assertEquals(repository.findByConversationId("c" + c), restored.findByConversationId("c" + c));
+        }
+    }
+
+    private JournaledChatMemoryRepository open(int journalBytes) throws IOException {
+        BoundedChatMemoryRepository delegate = new BoundedChatMemoryRepository(new CustomApplicationConfig.ChatMemoryOptions());
+        MappedJournal journal = new MappedJournal(directory, "chat-memory", journalBytes);
+        journals.add(journal);
+        return new JournaledChatMemoryRepository(delegate, journal, Duration.ofHours(1));
+    }
+}
@@ -0,0 +1,182 @@
+package org.spark.crossfit.ai.memory;
+
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBudgetChatMemoryTest {
+
+    // 40글자 ASCII -> 10토큰 + 메시지 고정 4토큰 = 14토큰
+    private static final String TEXT = "x".repeat(40);
+
+    private final RecordingRepository repository = new RecordingRepository();
+    private final RecordingSummarizer summarizer = new RecordingSummarizer();
+
+    @Test
+    void turnsUnderTheBudgetAreOnlyAppended() {
+        TokenBudgetChatMemory memory = memory(100, 60, 50);
+
+        memory.add("c1", List.of(user(1), assistant(1)));
+        memory.add("c1", List.of(user(2), assistant(2)));
+
+        assertEquals(List.of("append 0 [USER:u1, ASSISTANT:a1]", "append 0 [USER:u2, ASSISTANT:a2]"), repository.calls);
+        assertEquals(List.of(user(1), assistant(1), user(2), assistant(2)), memory.get("c1"));
+        assertEquals(List.of(), summarizer.evicted);
+    }
+
+    @Test
+    void overTheBudgetCutsDownToCompactTokensAtAUserBoundary() {
+        // 4쌍(112토큰)이 되면 상한(100)을 넘는다. 70 까지는 3개만 잘라도 되지만 코치 답변으로 시작하지 않도록 4개를 잘라낸다.
+        TokenBudgetChatMemory memory = memory(100, 70, 50);
+        for (int i = 1; i <= 4; i++) {
+            memory.add("c1", List.of(user(i), assistant(i)));
+        }
+
+        assertEquals("append 4 [USER:u4, ASSISTANT:a4]", repository.calls.get(3));
+        assertEquals(List.of(List.of(user(1), assistant(1), user(2), assistant(2))), summarizer.evicted);
+        assertEquals(List.of(summary("요약1"), user(3), assistant(3), user(4), assistant(4)), memory.get("c1"));
+    }
+
+    @Test
+    void summaryIsReplacedWithoutRewritingTheTurns() {
+        TokenBudgetChatMemory memory = memory(100, 60, 50);
+        for (int i = 1; i <= 8; i++) {
+            memory.add("c1", List.of(user(i), assistant(i)));
+        }
+
+        // 저장소에는 변경분만 간다. 요약은 replaceSummary 로만 바뀌고 saveAll 은 한 번도 불리지 않는다.
+        assertEquals(0, repository.calls.stream().filter(call -> call.startsWith("saveAll")).count());
+        List<String> summaries = repository.calls.stream().filter(call -> call.startsWith("replaceSummary")).toList();
+        int compactions = summarizer.evicted.size();
+        assertTrue(compactions >= 2);
+        assertEquals(compactions, summaries.size());
+        // 다음 요약은 직전 요약을 이어받는다.
+        assertNull(summarizer.previousSummaries.getFirst());
+        for (int i = 1; i < compactions; i++) {
+            assertEquals("요약" + i, summarizer.previousSummaries.get(i));
+        }
+
+        List<Message> window = memory.get("c1");
+        assertEquals(summary("요약" + compactions), window.getFirst());
+        assertEquals(assistant(8), window.getLast());
+    }
+
+    @Test
+    void messageCountLimitKeepsRoomForTheSummary() {
+        // 토큰은 넉넉하지만 maxMessages(5) 에 요약 자리 1개를 남겨야 하므로 턴은 4개까지만 둔다.
+        TokenBudgetChatMemory memory = memory(10_000, 10_000, 5);
+        for (int i = 1; i <= 3; i++) {
+            memory.add("c1", List.of(user(i), assistant(i)));
+        }
+
+        assertEquals(List.of(summary("요약1"), user(2), assistant(2), user(3), assistant(3)), memory.get("c1"));
+        assertEquals(List.of(List.of(user(1), assistant(1))), summarizer.evicted);
+    }
+
+    @Test
+    void aSingleOversizedTurnIsKept() {
+        TokenBudgetChatMemory memory = memory(20, 10, 50);
+
+        memory.add("c1", List.of(user(1)));
+
+        // 잘라낼 게 자기 자신뿐이면 남겨둔다.
+        assertEquals(List.of(user(1)), memory.get("c1"));
+        assertEquals(List.of(), summarizer.evicted);
+    }
+
+    private TokenBudgetChatMemory memory(int maxTokens, int compactToTokens, int maxMessages) {
+        CustomApplicationConfig.ChatMemoryOptions options = new CustomApplicationConfig.ChatMemoryOptions();
+        options.setMaxTokens(maxTokens);
+        options.setCompactToTokens(compactToTokens);
+        options.setMaxMessages(maxMessages);
+        repository.delegate = new BoundedChatMemoryRepository(options);
+        // 요약을 바로 반영하도록 같은 스레드에서 실행한다.
+        return new TokenBudgetChatMemory(repository, summarizer, Runnable::run, options);
+    }
+
+    private static Message user(int i) {
+        return new UserMessage("u" + i + TEXT);
+    }
+
+    private static Message assistant(int i) {
+        return new AssistantMessage("a" + i + TEXT);
+    }
+
+    private static Message summary(String text) {
+        return new SystemMessage(TokenBudgetChatMemory.SUMMARY_PREFIX + text);
+    }
+
+    private static String describe(List<Message> messages) {
+        return messages.stream()
+                .map(message -> message.getMessageType() + ":" + message.getText().replace(TEXT, ""))
+                .toList()
+                .toString();
+    }
+
+    /**
+     * 변경분 호출을 기록하고 결과는 BoundedChatMemoryRepository 에 반영한다.
+     */
+    private static class RecordingRepository implements ChatMemoryWindowRepository {
+        final List<String> calls = new ArrayList<>();
+        BoundedChatMemoryRepository delegate;
+
+        @Override
+        public List<String> findConversationIds() {
+            return delegate.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            return delegate.findByConversationId(conversationId);
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            calls.add("saveAll " + describe(messages));
+            delegate.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void append(String conversationId, int trimmed, List<Message> appended) {
+            calls.add("append " + trimmed + " " + describe(appended));
+            delegate.append(conversationId, trimmed, appended);
+        }
+
+        @Override
+        public void replaceSummary(String conversationId, Message summary) {
+            calls.add("replaceSummary " + summary.getText().substring(TokenBudgetChatMemory.SUMMARY_PREFIX.length()));
+            delegate.replaceSummary(conversationId, summary);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            delegate.deleteByConversationId(conversationId);
+        }
+    }
+
+    private static class RecordingSummarizer extends ConversationSummarizer {
+        final List<List<Message>> evicted = new ArrayList<>();
+        final List<String> previousSummaries = new ArrayList<>();
+
+        RecordingSummarizer() {
+            super(null, "", 800);
+        }
+
+        @Override
+        public String summarize(String previousSummary, List<Message> evicted) {
+            this.evicted.add(evicted);
+            previousSummaries.add(previousSummary);
+            return "요약" + this.evicted.size();
+        }
+    }
+}
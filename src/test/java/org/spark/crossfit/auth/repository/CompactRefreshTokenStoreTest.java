@@ -0,0 +1,350 @@
+package org.spark.crossfit.auth.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.config.CustomApplicationConfig;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactRefreshTokenStoreTest {
+
+    private static final Instant LATER = Instant.now().plus(Duration.ofHours(1));
+
+    private CompactRefreshTokenStore store;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        // 작은 테이블에서 시작해 테스트 중에 여러 번 다시 만들어지게 한다. sweeper 는 직접 호출한다.
+        store = new CompactRefreshTokenStore(config(16));
+        registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    void saveRotateAndReplayRoundTrip() {
+        String sid = uuid();
+        String first = uuid();
+        String second = uuid();
+
+        store.save("user", sid, first, LATER);
+        assertTrue(store.exists(sid, first));
+        assertFalse(store.isRevoked(sid, first));
+
+        assertTrue(store.rotate("user", sid, first, LATER, second, LATER));
+        assertFalse(store.exists(sid, first));
+        assertTrue(store.isRevoked(sid, first));
+        assertTrue(store.exists(sid, second));
+
+        // 이미 회전한 토큰으로는 다시 회전할 수 없다.
+        assertFalse(store.rotate("user", sid, first, LATER, uuid(), LATER));
+        assertEquals(1, gauge("refresh.token.valid"));
+        assertEquals(1, gauge("refresh.token.revoked"));
+    }
+
+    @Test
+    void rotatedWithinReturnsTheSuccessorOnlyInsideTheGraceWindow() throws Exception {
+        String sid = uuid();
+        String first = uuid();
+        String second = uuid();
+        store.save("user", sid, first, LATER);
+        assertTrue(store.rotate("user", sid, first, LATER, second, LATER));
+
+        RefreshTokenStore.Successor successor = store.rotatedWithin(sid, first, Duration.ofSeconds(10));
+        assertNotNull(successor);
+        assertEquals(second, successor.jti());
+        assertEquals(LATER.getEpochSecond(), successor.expiresAt().getEpochSecond());
+        // 회전하지 않은 토큰에는 후속 토큰이 없다.
+        assertNull(store.rotatedWithin(sid, second, Duration.ofSeconds(10)));
+
+        Thread.sleep(150);
+        assertNull(store.rotatedWithin(sid, first, Duration.ofMillis(100)));
+
+        // 후속 토큰까지 회전했거나 세션이 폐기됐으면 유예 시간 안이라도 돌려주지 않는다.
+        assertTrue(store.rotate("user", sid, second, LATER, uuid(), LATER));
+        assertNull(store.rotatedWithin(sid, first, Duration.ofSeconds(10)));
+        String third = uuid();
+        String fourth = uuid();
+        store.save("user", sid, third, LATER);
+        assertTrue(store.rotate("user", sid, third, LATER, fourth, LATER));
+        store.revokeSession(sid);
+        assertNull(store.rotatedWithin(sid, third, Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void unknownOrMalformedIdsAreNotFound() {
+        String sid = uuid();
+        store.save("user", sid, uuid(), LATER);
+
+        assertFalse(store.exists(sid, uuid()));
+        assertFalse(store.exists(uuid(), uuid()));
+        assertFalse(store.exists("not-a-uuid", "nope"));
+        assertFalse(store.isRevoked(sid, "nope"));
+        assertFalse(store.rotate("user", sid, "nope", LATER, uuid(), LATER));
+    }
+
+    @Test
+    void expiredTokensAreNotValid() {
+        String sid = uuid();
+        String jti = uuid();
+        store.save("user", sid, jti, Instant.now().minusSeconds(5));
+
+        assertFalse(store.exists(sid, jti));
+        assertFalse(store.rotate("user", sid, jti, LATER, uuid(), LATER));
+    }
+
+    @Test
+    void revokeSessionUnlinksOnlyThatSession() {
+        List<String[]> tokens = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String sid = uuid();
+            String jti = uuid();
+            store.save("user", sid, jti, LATER);
+            tokens.add(new String[]{sid, jti});
+        }
+        String[] middle = tokens.get(1);
+        String rotated = uuid();
+        store.rotate("user", middle[0], middle[1], LATER, rotated, LATER);
+
+        // 사용자 체인의 가운데 세션을 지워도 앞뒤 세션은 남아 있어야 한다.
+        store.revokeSession(middle[0]);
+        assertFalse(store.exists(middle[0], rotated));
+        assertFalse(store.isRevoked(middle[0], middle[1]));
+        assertTrue(store.exists(tokens.get(0)[0], tokens.get(0)[1]));
+        assertTrue(store.exists(tokens.get(2)[0], tokens.get(2)[1]));
+        assertEquals(2, gauge("refresh.token.sessions"));
+
+        store.revokeAllForUser("user");
+        for (String[] token : tokens) {
+            assertFalse(store.exists(token[0], token[1]));
+        }
+        assertEquals(0, gauge("refresh.token.sessions"));
+        assertEquals(0, gauge("refresh.token.valid"));
+        assertEquals(0, gauge("refresh.token.revoked"));
+    }
+
+    @Test
+    void revokeAllForUserLeavesOtherUsers() {
+        String mine = uuid();
+        String theirs = uuid();
+        String myJti = uuid();
+        String theirJti = uuid();
+        store.save("me", mine, myJti, LATER);
+        store.save("other", theirs, theirJti, LATER);
+
+        store.revokeAllForUser("me");
+        store.revokeAllForUser("nobody");
+
+        assertFalse(store.exists(mine, myJti));
+        assertTrue(store.exists(theirs, theirJti));
+
+        // 사용자 체인이 비었다가 다시 이어져도 정상 동작해야 한다.
+        String again = uuid();
+        String againJti = uuid();
+        store.save("me", again, againJti, LATER);
+        assertTrue(store.exists(again, againJti));
+        store.revokeAllForUser("me");
+        assertFalse(store.exists(again, againJti));
+        assertTrue(store.exists(theirs, theirJti));
+    }
+
+    @Test
+    void revokeThenMarkRevokedReusesTheTombstonedSlot() {
+        String sid = uuid();
+        String jti = uuid();
+        store.save("user", sid, jti, LATER);
+
+        // 기본 rotate 순서(revoke -> markRevoked)와 같다.
+        store.revoke(sid, jti);
+        assertFalse(store.exists(sid, jti));
+        store.markRevoked(sid, jti, LATER);
+
+        assertTrue(store.isRevoked(sid, jti));
+        assertEquals(0, gauge("refresh.token.valid"));
+        assertEquals(1, gauge("refresh.token.revoked"));
+    }
+
+    @Test
+    void tombstoneChurnDoesNotGrowTheTables() {
+        String sid = uuid();
+        List<String> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String jti = uuid();
+            store.save("user", sid, jti, LATER);
+            live.add(jti);
+        }
+        double initialBytes = gauge("refresh.token.compact.bytes");
+
+        // 살아 있는 토큰 수가 그대로라 tombstone 정리만으로 충분하다. 같은 크기로만 다시 만들어져야 한다.
+        for (int i = 0; i < 10_000; i++) {
+            String next = uuid();
+            store.save("user", sid, next, LATER);
+            store.revoke(sid, live.remove(0));
+            live.add(next);
+        }
+
+        for (String jti : live) {
+            assertTrue(store.exists(sid, jti));
+        }
+        assertEquals(live.size(), gauge("refresh.token.valid"));
+        assertEquals(initialBytes, gauge("refresh.token.compact.bytes"));
+    }
+
+    @Test
+    void rebuildKeepsEveryTokenAndUserChain() {
+        Random random = new Random(42);
+        double initialBytes = gauge("refresh.token.compact.bytes");
+        List<String[]> valid = new ArrayList<>();
+        List<String[]> revoked = new ArrayList<>();
+        for (int u = 0; u < 40; u++) {
+            for (int s = 0; s < 3; s++) {
+                String sid = uuid(random);
+                String jti = uuid(random);
+                store.save("user-" + u, sid, jti, LATER);
+                for (int r = 0; r < 2; r++) {
+                    String next = uuid(random);
+                    assertTrue(store.rotate("user-" + u, sid, jti, LATER, next, LATER));
+                    revoked.add(new String[]{"user-" + u, sid, jti});
+                    jti = next;
+                }
+                valid.add(new String[]{"user-" + u, sid, jti});
+            }
+        }
+
+        // 작은 테이블에서 시작했으므로 여러 번 두 배가 됐다.
+        assertTrue(gauge("refresh.token.compact.bytes") > initialBytes);
+        assertEquals(valid.size(), gauge("refresh.token.valid"));
+        assertEquals(revoked.size(), gauge("refresh.token.revoked"));
+        assertEquals(valid.size(), gauge("refresh.token.sessions"));
+        for (String[] token : valid) {
+            assertTrue(store.exists(token[1], token[2]));
+        }
+        for (String[] token : revoked) {
+            assertTrue(store.isRevoked(token[1], token[2]));
+        }
+
+        // 재구성 후에도 사용자 체인이 이어져 있어야 사용자 단위 폐기가 모든 세션에 닿는다.
+        for (int u = 0; u < 40; u += 2) {
+            store.revokeAllForUser("user-" + u);
+        }
+        for (String[] token : valid) {
+            boolean evenUser = Integer.parseInt(token[0].substring("user-".length())) % 2 == 0;
+            assertEquals(!evenUser, store.exists(token[1], token[2]));
+        }
+        for (String[] token : revoked) {
+            boolean evenUser = Integer.parseInt(token[0].substring("user-".length())) % 2 == 0;
+            assertEquals(!evenUser, store.isRevoked(token[1], token[2]));
+        }
+        assertEquals(valid.size() / 2, gauge("refresh.token.sessions"));
+    }
+
+    @Test
+    void sweepDropsExpiredTokensAndEmptySessions() {
+        Instant past = Instant.now().minusSeconds(5);
+        String expiredSession = uuid();
+        store.save("user", expiredSession, uuid(), past);
+        store.markRevoked(expiredSession, uuid(), past);
+
+        String mixedSession = uuid();
+        String live = uuid();
+        store.save("user", mixedSession, uuid(), past);
+        store.save("user", mixedSession, live, LATER);
+
+        // 배치 크기만큼씩 커서를 돌리므로 테이블 전체를 덮을 때까지 부른다.
+        int removed = 0;
+        for (int i = 0; i < 64; i++) {
+            removed += store.sweep();
+        }
+
+        assertEquals(3, removed);
+        assertEquals(3.0, gauge("refresh.token.swept"));
+        assertEquals(1, gauge("refresh.token.sessions"));
+        assertEquals(1, gauge("refresh.token.valid"));
+        assertEquals(0, gauge("refresh.token.revoked"));
+        assertTrue(store.exists(mixedSession, live));
+
+        // 빈 세션이 사용자 체인에서도 빠졌는지: 남은 세션만 폐기된다.
+        store.revokeAllForUser("user");
+        assertEquals(0, gauge("refresh.token.sessions"));
+    }
+
+    @Test
+    void behavesLikeTheMapBasedStore() {
+        InMemoryRefreshTokenStore reference = new InMemoryRefreshTokenStore(config(16));
+        try {
+            Random random = new Random(7);
+            List<String[]> known = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                int op = random.nextInt(10);
+                String[] pick = known.isEmpty() ? null : known.get(random.nextInt(known.size()));
+                if (op < 3 || pick == null) {
+                    String[] token = {"user-" + random.nextInt(20), uuid(random), uuid(random)};
+                    store.save(token[0], token[1], token[2], LATER);
+                    reference.save(token[0], token[1], token[2], LATER);
+                    known.add(token);
+                } else if (op < 6) {
+                    String next = uuid(random);
+                    boolean rotated = store.rotate(pick[0], pick[1], pick[2], LATER, next, LATER);
+                    assertEquals(reference.rotate(pick[0], pick[1], pick[2], LATER, next, LATER), rotated);
+                    known.add(new String[]{pick[0], pick[1], next});
+                } else if (op == 6) {
+                    store.revokeSession(pick[1]);
+                    reference.revokeSession(pick[1]);
+                } else if (op == 7 && random.nextInt(10) == 0) {
+                    store.revokeAllForUser(pick[0]);
+                    reference.revokeAllForUser(pick[0]);
+                } else {
+                    assertEquals(reference.exists(pick[1], pick[2]), store.exists(pick[1], pick[2]));
+                    assertEquals(reference.isRevoked(pick[1], pick[2]), store.isRevoked(pick[1], pick[2]));
+                }
+            }
+            for (String[] token : known) {
+                assertEquals(reference.exists(token[1], token[2]), store.exists(token[1], token[2]));
+                assertEquals(reference.isRevoked(token[1], token[2]), store.isRevoked(token[1], token[2]));
+            }
+        } finally {
+            reference.destroy();
+        }
+    }
+
+    private double gauge(String name) {
+        return name.equals("refresh.token.swept")
+                ? registry.get(name).functionCounter().count()
+                : registry.get(name).gauge().value();
+    }
+
+    private static CustomApplicationConfig config(int initialCapacity) {
+        CustomApplicationConfig config = new CustomApplicationConfig();
+        config.getRefreshTokenStore().setCompactInitialCapacity(initialCapacity);
+        config.getRefreshTokenStore().setSweepInterval(Duration.ofHours(1));
+        config.getRefreshTokenStore().setSweepBatchSize(16);
+        return config;
+    }
+
+    private static String uuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static String uuid(Random random) {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
@@ -0,0 +1,201 @@
+package org.spark.crossfit.auth.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 회전 CTE 와 인스턴스 간 일관성은 PostgreSQL 의 동작(행 잠금, UPDATE ... RETURNING)에 달려 있어 실제 DB 로 확인한다.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class JdbcRefreshTokenStoreTest {
+
+    private static final Instant LATER = Instant.now().plus(Duration.ofHours(1));
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    // 같은 DB 를 쓰는 두 인스턴스
+    private JdbcRefreshTokenStore node;
+    private JdbcRefreshTokenStore otherNode;
+
+    @BeforeAll
+    static void migrate() {
+        DataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM refresh_token");
+        node = newStore();
+        otherNode = newStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        node.destroy();
+        otherNode.destroy();
+    }
+
+    @Test
+    void rotateMovesTheOldTokenToTheRevokedList() {
+        String sid = uuid();
+        String first = uuid();
+        String second = uuid();
+        node.save("user", sid, first, LATER);
+
+        assertTrue(node.rotate("user", sid, first, LATER, second, LATER));
+
+        assertFalse(node.exists(sid, first));
+        assertTrue(node.isRevoked(sid, first));
+        assertTrue(node.exists(sid, second));
+        assertFalse(node.isRevoked(sid, second));
+        // 이미 회전한 토큰으로 다시 회전하면 새 행을 넣지 않는다.
+        assertFalse(node.rotate("user", sid, first, LATER, uuid(), LATER));
+        assertEquals(2, rows(sid));
+    }
+
+    @Test
+    void unknownOrExpiredTokensAreNotRotated() {
+        String sid = uuid();
+        String expired = uuid();
+        node.save("user", sid, expired, Instant.now().minusSeconds(5));
+
+        assertFalse(node.rotate("user", sid, expired, LATER, uuid(), LATER));
+        assertFalse(node.rotate("user", sid, uuid(), LATER, uuid(), LATER));
+        assertFalse(node.rotate("user", uuid(), uuid(), LATER, uuid(), LATER));
+        assertEquals(1, rows(sid));
+    }
+
+    @Test
+    void concurrentRotationsOfOneTokenHaveASingleWinner() throws Exception {
+        String sid = uuid();
+        String jti = uuid();
+        node.save("user", sid, jti, LATER);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                JdbcRefreshTokenStore store = i % 2 == 0 ? node : otherNode;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return store.rotate("user", sid, jti, LATER, uuid(), LATER);
+                }));
+            }
+            start.countDown();
+
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) winners++;
+            }
+            assertEquals(1, winners);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, (int) jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM refresh_token WHERE session_id = ? AND revoked_at IS NULL", Integer.class, sid));
+    }
+
+    @Test
+    void rotatedWithinIsAnsweredByEveryInstance() throws Exception {
+        String sid = uuid();
+        String first = uuid();
+        String second = uuid();
+        node.save("user", sid, first, LATER);
+        assertTrue(node.rotate("user", sid, first, LATER, second, LATER));
+
+        // 회전하지 않은 인스턴스도 DB 에 남은 후속 jti 로 같은 답을 한다.
+        RefreshTokenStore.Successor successor = otherNode.rotatedWithin(sid, first, Duration.ofSeconds(10));
+        assertNotNull(successor);
+        assertEquals(second, successor.jti());
+        assertNull(otherNode.rotatedWithin(sid, second, Duration.ofSeconds(10)));
+
+        Thread.sleep(300);
+        assertNull(otherNode.rotatedWithin(sid, first, Duration.ofMillis(100)));
+
+        // 로그아웃으로 후속 토큰이 폐기되면 유예 시간 안이라도 돌려주지 않는다.
+        node.revokeSession(sid);
+        assertNull(otherNode.rotatedWithin(sid, first, Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void revocationOnAnotherInstanceIsSeenImmediately() {
+        String sid = uuid();
+        String jti = uuid();
+        node.save("user", sid, jti, LATER);
+
+        assertFalse(node.isRevoked(sid, jti));
+        // 다른 인스턴스가 회전한 직후의 재사용도 바로 재사용으로 보여야 한다.
+        assertTrue(otherNode.rotate("user", sid, jti, LATER, uuid(), LATER));
+        assertTrue(node.isRevoked(sid, jti));
+    }
+
+    @Test
+    void sessionRevokedOnAnotherInstanceIsNoLongerValid() {
+        String sid = uuid();
+        String jti = uuid();
+        node.save("user", sid, jti, LATER);
+        assertTrue(node.exists(sid, jti));
+
+        otherNode.revokeSession(sid);
+
+        assertFalse(node.exists(sid, jti));
+        assertFalse(node.rotate("user", sid, jti, LATER, uuid(), LATER));
+    }
+
+    @Test
+    void sweepDeletesExpiredRows() {
+        String sid = uuid();
+        node.save("user", sid, uuid(), Instant.now().minusSeconds(5));
+        node.save("user", sid, uuid(), LATER);
+
+        assertEquals(1, node.sweep());
+        assertEquals(1, rows(sid));
+    }
+
+    private static JdbcRefreshTokenStore newStore() {
+        CustomApplicationConfig.RefreshTokenStoreOptions options = new CustomApplicationConfig.RefreshTokenStoreOptions();
+        options.setSweepInterval(Duration.ofHours(1));
+        return new JdbcRefreshTokenStore(jdbcTemplate, options);
+    }
+
+    private static int rows(String sid) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM refresh_token WHERE session_id = ?", Integer.class, sid);
+    }
+
+    private static String uuid() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.spark.crossfit.auth.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.snapshot.MappedJournal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 프로세스가 죽는 상황은 destroy 없이 같은 디렉터리로 새 저장소를 여는 것으로 흉내 낸다.
+ */
+class JournaledRefreshTokenStoreTest {
+
+    private static final Instant LATER = Instant.now().plus(Duration.ofHours(1));
+
+    @TempDir
+    Path directory;
+
+    private final List<InMemoryRefreshTokenStore> delegates = new ArrayList<>();
+    private final List<MappedJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (InMemoryRefreshTokenStore delegate : delegates) {
+            delegate.destroy();
+        }
+        for (MappedJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void restoresTokensAfterACrash() throws IOException {
+        JournaledRefreshTokenStore store = open(1 << 16);
+        String sid = uuid();
+        String jti = uuid();
+        String revokedSid = uuid();
+        String revokedJti = uuid();
+        store.save("user", sid, jti, LATER);
+        store.save("user", revokedSid, revokedJti, LATER);
+        store.revokeSession(revokedSid);
+        String reused = uuid();
+        store.markRevoked(sid, reused, LATER);
+
+        JournaledRefreshTokenStore restored = open(1 << 16);
+        assertTrue(restored.exists(sid, jti));
+        assertFalse(restored.exists(revokedSid, revokedJti));
+        assertTrue(restored.isRevoked(sid, reused));
+        assertFalse(restored.exists(sid, reused));
+    }
+
+    @Test
+    void replaysRotationWithItsSuccessor() throws IOException {
+        JournaledRefreshTokenStore store = open(1 << 16);
+        String sid = uuid();
+        String first = uuid();
+        String second = uuid();
+        store.save("user", sid, first, LATER);
+        assertTrue(store.rotate("user", sid, first, LATER, second, LATER));
+
+        JournaledRefreshTokenStore restored = open(1 << 16);
+        assertFalse(restored.exists(sid, first));
+        assertTrue(restored.isRevoked(sid, first));
+        assertTrue(restored.exists(sid, second));
+        // 회전 직후 재시작해도 유예 시간 안의 재요청은 같은 후속 토큰으로 이어진다.
+        RefreshTokenStore.Successor successor = restored.rotatedWithin(sid, first, Duration.ofSeconds(10));
+        assertNotNull(successor);
+        assertEquals(second, successor.jti());
+        assertFalse(restored.rotate("user", sid, first, LATER, uuid(), LATER));
+    }
+
+    @Test
+    void fullJournalIsCompactedIntoASnapshot() throws IOException {
+        // 토큰 몇 개만 들어가는 저널에 훨씬 많이 기록한다.
+        JournaledRefreshTokenStore store = open(1024);
+        String sid = uuid();
+        List<String> jtis = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String jti = uuid();
+            store.save("user", sid, jti, LATER);
+            jtis.add(jti);
+        }
+
+        JournaledRefreshTokenStore restored = open(1024);
+        for (String jti : jtis) {
+            assertTrue(restored.exists(sid, jti));
+        }
+    }
+
+    @Test
+    void writesDuringASnapshotSurviveACrash() throws Exception {
+        JournaledRefreshTokenStore store = open(1 << 20);
+        String sid = uuid();
+        List<String> jtis = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            jtis.add(uuid());
+        }
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (String jti : jtis) {
+                store.save("user", sid, jti, LATER);
+            }
+        });
+        while (!writer.isDone()) {
+            store.snapshot();
+        }
+        writer.join();
+
+        JournaledRefreshTokenStore restored = open(1 << 20);
+        for (String jti : jtis) {
+            assertTrue(restored.exists(sid, jti));
+        }
+    }
+
+    @Test
+    void destroyLeavesOnlyTheSnapshot() throws Exception {
+        JournaledRefreshTokenStore store = open(1 << 16);
+        String sid = uuid();
+        String jti = uuid();
+        store.save("user", sid, jti, LATER);
+        store.destroy();
+        delegates.removeLast();
+        journals.removeLast();
+
+        JournaledRefreshTokenStore restored = open(1 << 16);
+        assertTrue(restored.exists(sid, jti));
+    }
+
+    @Test
+    void rotationSurvivesARedeployWithinTheGrace() throws Exception {
+        JournaledRefreshTokenStore store = open(1 << 16);
+        String sid = uuid();
+        String first = uuid();
+        String second = uuid();
+        store.save("user", sid, first, LATER);
+        assertTrue(store.rotate("user", sid, first, LATER, second, LATER));
+        store.destroy();
+        delegates.removeLast();
+        journals.removeLast();
+
+        // 스냅샷만으로 복원해도 유예 시간 안의 재요청은 같은 후속 토큰으로 이어진다.
+        JournaledRefreshTokenStore restored = open(1 << 16);
+        assertTrue(restored.isRevoked(sid, first));
+        RefreshTokenStore.Successor successor = restored.rotatedWithin(sid, first, Duration.ofSeconds(10));
+        assertNotNull(successor);
+        assertEquals(second, successor.jti());
+        assertFalse(restored.rotate("user", sid, first, LATER, uuid(), LATER));
+    }
+
+    private JournaledRefreshTokenStore open(int journalBytes) throws IOException {
+        CustomApplicationConfig config = new CustomApplicationConfig();
+        config.getRefreshTokenStore().setSweepInterval(Duration.ofHours(1));
+        InMemoryRefreshTokenStore delegate = new InMemoryRefreshTokenStore(config);
+        MappedJournal journal = new MappedJournal(directory, "refresh-tokens", journalBytes);
+        delegates.add(delegate);
+        journals.add(journal);
+        return new JournaledRefreshTokenStore(delegate, journal, Duration.ofHours(1));
+    }
+
+    private static String uuid() {
+        return UUID.randomUUID().toString();
+    }
+}
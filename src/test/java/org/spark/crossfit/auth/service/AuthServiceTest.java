@@ -0,0 +1,241 @@
+package org.spark.crossfit.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.auth.JwtAlgorithm;
+import org.spark.crossfit.auth.JwtTokenProvider;
+import org.spark.crossfit.auth.dto.IssuedToken;
+import org.spark.crossfit.auth.dto.TokenPair;
+import org.spark.crossfit.auth.repository.InMemoryRefreshTokenStore;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.exception.UnauthorizedException;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class AuthServiceTest {
+
+    private final List<InMemoryRefreshTokenStore> stores = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        stores.forEach(InMemoryRefreshTokenStore::destroy);
+    }
+
+    @Test
+    void concurrentRefreshesWithTheSameTokenShareOneRotation() throws Exception {
+        CustomApplicationConfig config = config(Duration.ofSeconds(10));
+        JwtTokenProvider jwt = new JwtTokenProvider(config);
+        GatedStore store = track(new GatedStore(config));
+        AuthService auth = new AuthService(jwt, store, config, new SimpleMeterRegistry());
+        String refresh = login(jwt, store);
+
+        Future<TokenPair> leader = executor.submit(() -> auth.refreshToken(refresh));
+        assertTrue(store.entered.await(5, TimeUnit.SECONDS));
+        List<Future<TokenPair>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(executor.submit(() -> auth.refreshToken(refresh)));
+        }
+        // 뒤따르는 요청이 진행 중인 회전에 붙을 시간을 준다.
+        Thread.sleep(200);
+        store.release.countDown();
+
+        TokenPair first = leader.get(5, TimeUnit.SECONDS);
+        for (Future<TokenPair> follower : followers) {
+            assertSame(first, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, store.rotations.get());
+    }
+
+    @Test
+    void leaderFailureIsSharedAndDoesNotConsumeTheToken() throws Exception {
+        CustomApplicationConfig config = config(Duration.ofSeconds(10));
+        JwtTokenProvider jwt = new JwtTokenProvider(config);
+        GatedStore store = track(new GatedStore(config));
+        store.failNext = true;
+        AuthService auth = new AuthService(jwt, store, config, new SimpleMeterRegistry());
+        String refresh = login(jwt, store);
+
+        Future<TokenPair> leader = executor.submit(() -> auth.refreshToken(refresh));
+        assertTrue(store.entered.await(5, TimeUnit.SECONDS));
+        Future<TokenPair> follower = executor.submit(() -> auth.refreshToken(refresh));
+        Thread.sleep(200);
+        store.release.countDown();
+
+        assertEquals("store unavailable", cause(leader).getMessage());
+        assertEquals("store unavailable", cause(follower).getMessage());
+
+        // 실패한 회전은 토큰을 소모하지 않으므로 다시 시도하면 정상적으로 회전한다.
+        TokenPair retried = auth.refreshToken(refresh);
+        assertNotEquals(jti(jwt, refresh), jti(jwt, retried.refreshToken()));
+    }
+
+    @Test
+    void duplicateWithinGraceOnAnotherInstanceGetsTheSameSuccessor() {
+        CustomApplicationConfig config = config(Duration.ofSeconds(10));
+        JwtTokenProvider jwt = new JwtTokenProvider(config);
+        InMemoryRefreshTokenStore store = track(new InMemoryRefreshTokenStore(config));
+        // 같은 저장소를 쓰는 두 인스턴스. 인스턴스별 single-flight 는 서로 보이지 않는다.
+        AuthService node = new AuthService(jwt, store, config, new SimpleMeterRegistry());
+        SimpleMeterRegistry otherRegistry = new SimpleMeterRegistry();
+        AuthService otherNode = new AuthService(jwt, store, config, otherRegistry);
+        String refresh = login(jwt, store);
+
+        TokenPair rotated = node.refreshToken(refresh);
+        TokenPair duplicate = otherNode.refreshToken(refresh);
+
+        String successor = jti(jwt, rotated.refreshToken());
+        assertEquals(successor, jti(jwt, duplicate.refreshToken()));
+        assertEquals(1, otherRegistry.get("auth.refresh.grace.reused").counter().count());
+
+        // 두 응답 중 어느 쪽으로 이어가도 같은 후속 토큰이다.
+        TokenPair next = otherNode.refreshToken(duplicate.refreshToken());
+        assertNotEquals(successor, jti(jwt, next.refreshToken()));
+        assertThrows(UnauthorizedException.class, () -> node.refreshToken(refresh));
+    }
+
+    @Test
+    void reuseAfterLogoutIsRejected() {
+        CustomApplicationConfig config = config(Duration.ofSeconds(10));
+        JwtTokenProvider jwt = new JwtTokenProvider(config);
+        InMemoryRefreshTokenStore store = track(new InMemoryRefreshTokenStore(config));
+        AuthService auth = new AuthService(jwt, store, config, new SimpleMeterRegistry());
+        String refresh = login(jwt, store);
+
+        auth.refreshToken(refresh);
+        store.revokeSession(sid(jwt, refresh));
+
+        // 유예 시간 안이라도 세션이 폐기됐으면 후속 토큰을 다시 내주지 않는다.
+        assertThrows(UnauthorizedException.class, () -> auth.refreshToken(refresh));
+    }
+
+    @Test
+    void reuseAfterTheGraceWindowRevokesTheSession() throws Exception {
+        CustomApplicationConfig config = config(Duration.ofMillis(50));
+        JwtTokenProvider jwt = new JwtTokenProvider(config);
+        InMemoryRefreshTokenStore store = track(new InMemoryRefreshTokenStore(config));
+        AuthService auth = new AuthService(jwt, store, config, new SimpleMeterRegistry());
+        String refresh = login(jwt, store);
+
+        TokenPair rotated = auth.refreshToken(refresh);
+        Thread.sleep(200);
+
+        UnauthorizedException replay = assertThrows(UnauthorizedException.class, () -> auth.refreshToken(refresh));
+        assertEquals("Refresh token replay detected", replay.getMessage());
+        // 탈취로 보고 세션 전체를 폐기하므로 정상 사용자가 받은 후속 토큰도 더는 쓸 수 없다.
+        assertFalse(store.exists(sid(jwt, refresh), jti(jwt, rotated.refreshToken())));
+    }
+
+    /**
+     * 첫 회전을 release 가 열릴 때까지 붙잡아 둔다. failNext 면 그 회전은 예외로 끝난다.
+     */
+    private static class GatedStore extends InMemoryRefreshTokenStore {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger rotations = new AtomicInteger();
+        volatile boolean failNext;
+
+        GatedStore(CustomApplicationConfig config) {
+            super(config);
+        }
+
+        @Override
+        public boolean rotate(String userId, String sessionId, String oldJti, Instant oldExpiresAt,
+                              String newJti, Instant newExpiresAt) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("store unavailable");
+            }
+            rotations.incrementAndGet();
+            return super.rotate(userId, sessionId, oldJti, oldExpiresAt, newJti, newExpiresAt);
+        }
+    }
+
+    private <T extends InMemoryRefreshTokenStore> T track(T store) {
+        stores.add(store);
+        return store;
+    }
+
+    private static String login(JwtTokenProvider jwt, InMemoryRefreshTokenStore store) {
+        IssuedToken refresh = jwt.issueTokenPair("user", UUID.randomUUID().toString()).refreshToken();
+        store.save("user", refresh.sid(), refresh.jti(), refresh.expiresAt());
+        return refresh.token();
+    }
+
+    private static String jti(JwtTokenProvider jwt, String token) {
+        return jwt.validateAndGetClaims(token).getId();
+    }
+
+    private static String sid(JwtTokenProvider jwt, String token) {
+        return jwt.validateAndGetClaims(token).get("sid", String.class);
+    }
+
+    private static Throwable cause(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.ExecutionException e) {
+            return e.getCause();
+        }
+        return fail("expected the refresh to fail");
+    }
+
+    private static CustomApplicationConfig config(Duration grace) {
+        KeyPair keys;
+        try {
+            keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        CustomApplicationConfig config = new CustomApplicationConfig();
+        CustomApplicationConfig.Jwt jwt = config.getJwt();
+        jwt.setIssuer("crossfit-test");
+        jwt.setAudience("crossfit-test");
+        jwt.setAlgorithm(JwtAlgorithm.EdDSA);
+        jwt.setKeyId("test");
+        jwt.setPrivateKey(pem("PRIVATE KEY", keys.getPrivate().getEncoded()));
+        jwt.setPublicKey(pem("PUBLIC KEY", keys.getPublic().getEncoded()));
+        jwt.setAccessTokenTtl(900L);
+        jwt.setRefreshTokenTtl(14L);
+        jwt.setAccessTokenPurpose("access");
+        jwt.setRefreshTokenPurpose("refresh");
+        jwt.setRefreshGracePeriod(grace);
+        config.getRefreshTokenStore().setSweepInterval(Duration.ofHours(1));
+        return config;
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -0,0 +1,153 @@
+package org.spark.crossfit.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.ai.AccessoryAgentOrchestrator;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.dto.MyInfo;
+import org.spark.crossfit.dto.UnitType;
+import org.spark.crossfit.exception.ExceptionAdvice;
+import org.spark.crossfit.service.CrossfitAdvisorService;
+import org.spark.crossfit.service.GoogleVisionOcrService;
+import org.spark.crossfit.service.MemberService;
+import org.spark.crossfit.service.MyInfoCache;
+import org.spark.crossfit.service.OcrJobService;
+import org.spark.crossfit.service.PhotoChatService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CrossfitAdvisorControllerTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    private final MemberService memberService = mock(MemberService.class);
+    private final CrossfitAdvisorService service = new CrossfitAdvisorService(
+            memberService, new MyInfoCache(new CustomApplicationConfig(), new SimpleMeterRegistry()));
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new CrossfitAdvisorController(service,
+                    mock(GoogleVisionOcrService.class),
+                    mock(AccessoryAgentOrchestrator.class),
+                    mock(OcrJobService.class),
+                    mock(PhotoChatService.class)))
+            .setControllerAdvice(new ExceptionAdvice())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(EMAIL, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void currentETagIsNotModified() throws Exception {
+        stored(2, "kim");
+        String eTag = eTagOfGet();
+
+        mockMvc.perform(get("/api/user/me").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void revalidationIsAnsweredFromTheCache() throws Exception {
+        stored(2, "kim");
+        String eTag = eTagOfGet();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/user/me").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified());
+        }
+
+        verify(memberService, times(1)).findMyInfoByEmail(EMAIL);
+        verifyNoMoreInteractions(memberService);
+    }
+
+    @Test
+    void updateChangesTheETag() throws Exception {
+        stored(2, "kim");
+        String eTag = eTagOfGet();
+        when(memberService.updateMyInfo(eq(EMAIL), any(), eq(2L))).thenReturn(true);
+        mockMvc.perform(put("/api/user/me")
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nickname\":\"lee\"}"))
+                .andExpect(status().isOk());
+
+        stored(3, "lee");
+        String latest = mockMvc.perform(get("/api/user/me").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.nickname").value("lee"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, latest);
+    }
+
+    @Test
+    void staleIfMatchIsPreconditionFailed() throws Exception {
+        stored(3, "lee");
+        when(memberService.updateMyInfo(eq(EMAIL), any(), eq(2L))).thenReturn(false);
+        when(memberService.existsByEmail(EMAIL)).thenReturn(true);
+
+        mockMvc.perform(put("/api/user/me")
+                        .header(HttpHeaders.IF_MATCH, CrossfitAdvisorService.eTagOf(myInfo(2, "kim")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nickname\":\"park\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void matchingIfMatchReturnsTheNextETag() throws Exception {
+        when(memberService.updateMyInfo(eq(EMAIL), any(), eq(2L))).thenReturn(true);
+
+        mockMvc.perform(put("/api/user/me")
+                        .header(HttpHeaders.IF_MATCH, CrossfitAdvisorService.eTagOf(myInfo(2, "kim")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nickname\":\"park\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, CrossfitAdvisorService.eTagOf(myInfo(3, "park"))));
+    }
+
+    private String eTagOfGet() throws Exception {
+        return mockMvc.perform(get("/api/user/me"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private void stored(long version, String nickname) {
+        when(memberService.findMyInfoByEmail(EMAIL)).thenReturn(Optional.of(myInfo(version, nickname)));
+    }
+
+    private static MyInfo myInfo(long version, String nickname) {
+        return MyInfo.builder()
+                .email(EMAIL)
+                .nickname(nickname)
+                .unitType(UnitType.KG)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package org.spark.crossfit.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 마이그레이션 도입 전에 손으로 만든 member 테이블(email 유니크 없음)에서 시작해 운영과 같은 baseline 설정으로 적용한다.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MemberMigrationTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Test
+    void duplicateEmailsFromBeforeFlywayAreMergedIntoTheFirstMember() {
+        DataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE member (
+                    id              BIGSERIAL PRIMARY KEY,
+                    email           VARCHAR(255),
+                    uid             VARCHAR(255),
+                    nickname        VARCHAR(255),
+                    unit_type       VARCHAR(255),
+                    workout_minutes INTEGER,
+                    additional_info VARCHAR(255)
+                )
+                """);
+        // 같은 회원의 동시 로그인으로 생긴 중복 행
+        jdbcTemplate.update("INSERT INTO member (email, nickname) VALUES ('a@example.com', 'first'), ('b@example.com', 'only'), "
+                + "('a@example.com', 'second'), ('a@example.com', 'third')");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+
+        List<String> nicknames = jdbcTemplate.queryForList("SELECT nickname FROM member ORDER BY email", String.class);
+        assertEquals(List.of("first", "only"), nicknames);
+        assertThrows(DuplicateKeyException.class,
+                () -> jdbcTemplate.update("INSERT INTO member (email, nickname) VALUES ('a@example.com', 'again')"));
+    }
+}
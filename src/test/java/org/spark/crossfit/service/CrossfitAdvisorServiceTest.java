@@ -0,0 +1,78 @@
+package org.spark.crossfit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.config.CustomApplicationConfig;
+import org.spark.crossfit.dto.MyInfo;
+import org.spark.crossfit.dto.UnitType;
+import org.spark.crossfit.exception.PreconditionFailedException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class CrossfitAdvisorServiceTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    private final MemberService memberService = mock(MemberService.class);
+    private final MyInfoCache myInfoCache = new MyInfoCache(new CustomApplicationConfig(), new SimpleMeterRegistry());
+    private final CrossfitAdvisorService service = new CrossfitAdvisorService(memberService, myInfoCache);
+
+    @Test
+    void versionOfReadsThisUsersStrongTag() {
+        String eTag = CrossfitAdvisorService.eTagOf(myInfo(3, "kim"));
+
+        assertEquals(3L, CrossfitAdvisorService.versionOf(EMAIL, eTag));
+        // 목록 안에 다른 사용자의 태그가 섞여 있어도 이 사용자의 것을 찾는다.
+        String other = CrossfitAdvisorService.eTagOf(MyInfo.builder().email("other@example.com").version(7L).build());
+        assertEquals(3L, CrossfitAdvisorService.versionOf(EMAIL, other + ", " + eTag));
+    }
+
+    @Test
+    void versionOfSkipsTheCheckForAWildcard() {
+        assertNull(CrossfitAdvisorService.versionOf(EMAIL, "*"));
+        assertNull(CrossfitAdvisorService.versionOf(EMAIL, " * "));
+    }
+
+    @Test
+    void versionOfRejectsWeakForeignAndMalformedTags() {
+        String eTag = CrossfitAdvisorService.eTagOf(myInfo(3, "kim"));
+        String other = CrossfitAdvisorService.eTagOf(MyInfo.builder().email("other@example.com").version(3L).build());
+        String prefix = eTag.substring(0, eTag.indexOf('-') + 1);
+
+        assertThrows(PreconditionFailedException.class, () -> CrossfitAdvisorService.versionOf(EMAIL, "W/" + eTag));
+        assertThrows(PreconditionFailedException.class, () -> CrossfitAdvisorService.versionOf(EMAIL, other));
+        assertThrows(PreconditionFailedException.class, () -> CrossfitAdvisorService.versionOf(EMAIL, prefix + "\""));
+        assertThrows(PreconditionFailedException.class, () -> CrossfitAdvisorService.versionOf(EMAIL, prefix + "x\""));
+        assertThrows(PreconditionFailedException.class, () -> CrossfitAdvisorService.versionOf(EMAIL, "3"));
+    }
+
+    @Test
+    void repeatedReadsDoNotTouchTheDatabase() {
+        when(memberService.findMyInfoByEmail(EMAIL)).thenReturn(Optional.of(myInfo(0, "kim")));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("kim", service.getMyInfo(EMAIL).getNickname());
+        }
+
+        verify(memberService, times(1)).findMyInfoByEmail(EMAIL);
+        verifyNoMoreInteractions(memberService);
+    }
+
+    private static MyInfo myInfo(long version, String nickname) {
+        return MyInfo.builder()
+                .email(EMAIL)
+                .nickname(nickname)
+                .unitType(UnitType.KG)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package org.spark.crossfit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spark.crossfit.config.CustomApplicationConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OcrResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<OcrResultCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        caches.forEach(OcrResultCache::destroy);
+    }
+
+    @Test
+    void emptyResultsAreNotCached() throws IOException {
+        OcrResultCache cache = open(1024);
+        cache.put(digest('a'), "");
+        cache.put(digest('b'), "  \n");
+
+        assertNull(cache.get(digest('a')));
+        assertNull(cache.get(digest('b')));
+        assertEquals(0, cachedFiles());
+    }
+
+    @Test
+    void diskEntriesSurviveARestart() {
+        open(1024).put(digest('a'), "21-15-9 thrusters");
+
+        assertEquals("21-15-9 thrusters", open(1024).get(digest('a')));
+    }
+
+    @Test
+    void pruneRemovesFilesUnusedForTheMaxAge() throws IOException {
+        OcrResultCache cache = open(1024);
+        cache.put(digest('a'), "old");
+        cache.put(digest('b'), "new");
+        age(digest('a'), Duration.ofDays(31));
+
+        assertEquals(1, cache.prune());
+
+        OcrResultCache restarted = open(1024);
+        assertNull(restarted.get(digest('a')));
+        assertEquals("new", restarted.get(digest('b')));
+    }
+
+    @Test
+    void pruneEvictsTheLeastRecentlyReadFilesOverTheByteCap() throws IOException {
+        OcrResultCache cache = open(20);
+        cache.put(digest('a'), "0123456789");
+        cache.put(digest('b'), "0123456789");
+        age(digest('a'), Duration.ofHours(2));
+        age(digest('b'), Duration.ofHours(1));
+        // 디스크에서 읽으면 가장 최근에 쓴 파일이 된다.
+        assertEquals("0123456789", open(20).get(digest('a')));
+        cache.put(digest('c'), "0123456789");
+
+        assertEquals(1, cache.prune());
+
+        OcrResultCache restarted = open(20);
+        assertEquals("0123456789", restarted.get(digest('a')));
+        assertNull(restarted.get(digest('b')));
+        assertEquals("0123456789", restarted.get(digest('c')));
+    }
+
+    @Test
+    void pruneRemovesLeftoverTempFiles() throws IOException {
+        OcrResultCache cache = open(1024);
+        cache.put(digest('a'), "text");
+        Path leftover = Files.createTempFile(directory.resolve("aa"), digest('b'), ".tmp");
+        Files.setLastModifiedTime(leftover, FileTime.from(Instant.now().minus(Duration.ofMinutes(5))));
+
+        assertEquals(1, cache.prune());
+        assertEquals(1, cachedFiles());
+    }
+
+    private OcrResultCache open(long diskMaxBytes) {
+        CustomApplicationConfig config = new CustomApplicationConfig();
+        config.getOcrCache().setDiskDirectory(directory.toString());
+        config.getOcrCache().setDiskMaxBytes(diskMaxBytes);
+        config.getOcrCache().setDiskPruneInterval(Duration.ofHours(1));
+        OcrResultCache cache = new OcrResultCache(config, new SimpleMeterRegistry());
+        caches.add(cache);
+        return cache;
+    }
+
+    private void age(String digest, Duration age) throws IOException {
+        Path file = directory.resolve(digest.substring(0, 2)).resolve(digest + ".txt");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+    }
+
+    private long cachedFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static String digest(char c) {
+        // 앞 두 글자가 같아 모두 같은 하위 디렉토리에 들어간다.
+        return "aa" + String.valueOf(c).repeat(62);
+    }
+}
@@ -0,0 +1,82 @@
+package org.spark.crossfit.service;
+
+import org.junit.jupiter.api.Test;
+import org.spark.crossfit.ai.AccessoryAgentOrchestrator;
+import org.spark.crossfit.dto.MyInfo;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PhotoChatServiceTest {
+
+    private final OcrJobService ocrJobService = mock(OcrJobService.class);
+    private final CrossfitAdvisorService crossfitAdvisorService = mock(CrossfitAdvisorService.class);
+    private final AccessoryAgentOrchestrator orchestrator = mock(AccessoryAgentOrchestrator.class);
+    private final SseEmitter emitter = mock(SseEmitter.class);
+
+    private final PhotoChatService service = new PhotoChatService(ocrJobService, crossfitAdvisorService, orchestrator);
+    private final MockMultipartFile file = new MockMultipartFile("file", "wod.jpg", "image/jpeg", new byte[]{1, 2, 3});
+
+    @Test
+    void completesEmitterWhenProfileLookupFails() throws Exception {
+        when(ocrJobService.detectAsync(file)).thenReturn(CompletableFuture.completedFuture("21-15-9 thrusters"));
+        when(crossfitAdvisorService.getMyInfo("user@example.com")).thenThrow(new NoSuchElementException());
+        // 첫 턴이면 오케스트레이터가 프로필을 바로 조회한다.
+        doAnswer(invocation -> {
+            Supplier<MyInfo> profile = invocation.getArgument(2);
+            return profile.get();
+        }).when(orchestrator).stream(anyString(), any(), any(), eq(emitter));
+
+        service.stream("c1", file, null, "user@example.com", emitter);
+
+        // ocr 이벤트 + error 이벤트
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter).complete();
+    }
+
+    @Test
+    void completesEmitterWhenOrchestratorThrows() throws Exception {
+        when(ocrJobService.detectAsync(file)).thenReturn(CompletableFuture.completedFuture("21-15-9 thrusters"));
+        doAnswer(invocation -> {
+            throw new IllegalStateException("chat memory unavailable");
+        }).when(orchestrator).stream(anyString(), any(), any(), eq(emitter));
+
+        service.stream("c1", file, "scale it", "user@example.com", emitter);
+
+        verify(emitter).complete();
+    }
+
+    @Test
+    void completesEmitterWhenOcrFails() throws Exception {
+        when(ocrJobService.detectAsync(file)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("vision down")));
+
+        service.stream("c1", file, null, "user@example.com", emitter);
+
+        verify(orchestrator, never()).stream(anyString(), any(), any(), any());
+        verify(emitter).complete();
+    }
+
+    @Test
+    void streamsAdviceAfterOcr() throws Exception {
+        when(ocrJobService.detectAsync(file)).thenReturn(CompletableFuture.completedFuture("21-15-9 thrusters"));
+
+        service.stream("c1", file, "scale it", "user@example.com", emitter);
+
+        // 스트림을 닫는 건 오케스트레이터 몫이다.
+        verify(orchestrator).stream(eq("c1"), any(), any(), eq(emitter));
+        verify(emitter, never()).complete();
+    }
+}
@@ -0,0 +1,216 @@
+package org.spark.crossfit.snapshot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.spark.crossfit.snapshot.MappedJournal.readString;
+import static org.spark.crossfit.snapshot.MappedJournal.writeString;
+
+/**
+ * 프로세스가 죽는 상황은 close 없이 같은 파일로 새 MappedJournal 을 여는 것으로 흉내 낸다.
+ * (매핑된 페이지는 같은 OS 페이지 캐시를 보므로 죽은 프로세스가 남긴 저널과 같다)
+ */
+class MappedJournalTest {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (MappedJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void restoresSnapshotAndJournalAfterACrash() throws IOException {
+        MappedJournal journal = open(4096);
+        assertEquals(List.of(), replay(journal));
+        append(journal, "a");
+        append(journal, "b");
+        journal.rewrite(snapshotOf("a", "b"));
+        append(journal, "c");
+
+        assertEquals(List.of("a", "b", "c"), replay(open(4096)));
+    }
+
+    @Test
+    void tornTailRecordIsSkippedAndOverwritten() throws IOException {
+        MappedJournal journal = open(4096);
+        replay(journal);
+        append(journal, "a");
+        int second = journal.usedBytes();
+        append(journal, "b");
+        // 마지막 레코드 내용이 다 써지기 전에 죽은 것처럼 내용 한 바이트를 망가뜨린다.
+        corrupt(second + 2 * Integer.BYTES + Integer.BYTES);
+
+        MappedJournal restarted = open(4096);
+        assertEquals(List.of("a"), replay(restarted));
+        assertEquals(second, restarted.usedBytes());
+        append(restarted, "c");
+
+        assertEquals(List.of("a", "c"), replay(open(4096)));
+    }
+
+    @Test
+    void appendReportsAFullJournalAndRewriteMakesRoom() throws IOException {
+        MappedJournal journal = open(128);
+        replay(journal);
+        List<String> written = new ArrayList<>();
+        for (int i = 0; journal.append(out -> writeString(out, "x")); i++) {
+            written.add("x");
+        }
+        assertFalse(written.isEmpty());
+
+        journal.rewrite(snapshotOf(written.toArray(String[]::new)));
+        assertEquals(HEADER_BYTES, journal.usedBytes());
+        assertTrue(journal.append(out -> writeString(out, "y")));
+
+        List<String> expected = new ArrayList<>(written);
+        expected.add("y");
+        assertEquals(expected, replay(open(128)));
+    }
+
+    @Test
+    void installMovesRecordsWrittenDuringTheSnapshotToTheNextGeneration() throws IOException {
+        MappedJournal journal = open(4096);
+        replay(journal);
+        append(journal, "a");
+        append(journal, "b");
+        MappedJournal.Checkpoint checkpoint = journal.checkpoint();
+        Path written = journal.writeSnapshot(checkpoint, snapshotOf("a", "b"));
+        // 스냅샷 파일을 쓰는 동안 들어온 기록
+        append(journal, "c");
+        int tail = journal.usedBytes() - checkpoint.position();
+
+        assertTrue(journal.install(checkpoint, written));
+        assertEquals(HEADER_BYTES + tail, journal.usedBytes());
+        append(journal, "d");
+
+        assertEquals(List.of("a", "b", "c", "d"), replay(open(4096)));
+    }
+
+    @Test
+    void crashAfterTheSnapshotMoveReplaysOnlyRecordsAfterTheCheckpoint() throws IOException {
+        MappedJournal journal = open(4096);
+        replay(journal);
+        append(journal, "a");
+        append(journal, "b");
+        MappedJournal.Checkpoint checkpoint = journal.checkpoint();
+        Path written = journal.writeSnapshot(checkpoint, snapshotOf("a", "b"));
+        append(journal, "c");
+        // install 이 스냅샷을 교체한 직후, 저널 세대를 바꾸기 전에 죽었다.
+        Files.move(written, directory.resolve("test.snapshot"), StandardCopyOption.REPLACE_EXISTING);
+
+        assertEquals(List.of("a", "b", "c"), replay(open(4096)));
+    }
+
+    @Test
+    void crashWhileMovingTheTailStillReplaysTheOldGeneration() throws IOException {
+        MappedJournal journal = open(4096);
+        replay(journal);
+        for (String record : List.of("a", "b", "c", "d")) {
+            append(journal, record);
+        }
+        MappedJournal.Checkpoint checkpoint = journal.checkpoint();
+        Path written = journal.writeSnapshot(checkpoint, snapshotOf("a", "b", "c", "d"));
+        append(journal, "e");
+        Files.move(written, directory.resolve("test.snapshot"), StandardCopyOption.REPLACE_EXISTING);
+        // 뒤의 기록을 앞으로 옮기던 중(세대 번호는 아직 그대로)에 죽었다. 앞부분은 무엇이 쓰여 있든 읽지 않아야 한다.
+        overwrite(HEADER_BYTES, new byte[checkpoint.position() - HEADER_BYTES]);
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), replay(open(4096)));
+    }
+
+    @Test
+    void snapshotOvertakenByARewriteIsDiscarded() throws IOException {
+        MappedJournal journal = open(4096);
+        replay(journal);
+        append(journal, "a");
+        MappedJournal.Checkpoint checkpoint = journal.checkpoint();
+        Path stale = journal.writeSnapshot(checkpoint, snapshotOf("a"));
+        append(journal, "b");
+        // 저널이 가득 차 잠금 안에서 전체 스냅샷을 먼저 썼다.
+        journal.rewrite(snapshotOf("a", "b"));
+        append(journal, "c");
+
+        assertFalse(journal.install(checkpoint, stale));
+        assertFalse(Files.exists(stale));
+        assertEquals(List.of("a", "b", "c"), replay(open(4096)));
+    }
+
+    @Test
+    void journalFromAnOlderGenerationIsIgnored() throws IOException {
+        MappedJournal journal = open(4096);
+        replay(journal);
+        append(journal, "a");
+        byte[] oldJournal = Files.readAllBytes(directory.resolve("test.journal"));
+        journal.rewrite(snapshotOf("a"));
+        append(journal, "b");
+        journal.rewrite(snapshotOf("a", "b"));
+        // 두 세대 전의 저널이 남아 있는 경우 (예: 저널 파일만 백업에서 되돌림)
+        overwrite(0, oldJournal);
+
+        MappedJournal restarted = open(4096);
+        assertEquals(List.of("a", "b"), replay(restarted));
+        assertEquals(HEADER_BYTES, restarted.usedBytes());
+    }
+
+    private MappedJournal open(int journalBytes) throws IOException {
+        MappedJournal journal = new MappedJournal(directory, "test", journalBytes);
+        opened.add(journal);
+        return journal;
+    }
+
+    private static List<String> replay(MappedJournal journal) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.replay(in -> records.add(readString(in)));
+        return records;
+    }
+
+    private static void append(MappedJournal journal, String record) throws IOException {
+        assertTrue(journal.append(out -> writeString(out, record)));
+    }
+
+    private static MappedJournal.SnapshotSource snapshotOf(String... records) {
+        return sink -> {
+            for (String record : records) {
+                sink.append(out -> writeString(out, record));
+            }
+        };
+    }
+
+    private void corrupt(int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("test.journal"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.flip();
+            b.put(0, (byte) (b.get(0) ^ 0x5A));
+            channel.write(b, position);
+        }
+    }
+
+    private void overwrite(int position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("test.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+}